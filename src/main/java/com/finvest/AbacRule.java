@@ -0,0 +1,27 @@
+package main.java.com.finvest;
+
+/**
+ * An Attribute-Based Access Control (ABAC) rule, evaluated against a user and the context of their session. Rules must
+ * be safe to evaluate from many threads at once, and should neither allocate nor block when permitting access.
+ *
+ * @author Paul Roode
+ */
+public interface AbacRule {
+
+    /**
+     * Determines whether this rule permits the given user to access the system in the given context.
+     *
+     * @param user    The user requesting access.
+     * @param context The context of the user's session.
+     * @return True if the rule permits access, false otherwise.
+     */
+    boolean permits(User user, AccessContext context);
+
+    /**
+     * Describes why this rule denies access, e.g., for reporting a denial to the user.
+     *
+     * @return A description of the denial.
+     */
+    String getDenialMessage();
+
+}
@@ -0,0 +1,256 @@
+package main.java.com.finvest;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiPredicate;
+
+import static main.java.com.finvest.RoleEnum.getRoleEnum;
+
+/**
+ * A set of ABAC rules compiled from their definitions into an array of predicates per role, so that a check evaluates
+ * only the rules that apply to the user's role, without interpreting their definitions. Each definition takes the form
+ * role:attribute:condition, where role is a role name or * for every role, and a user must satisfy every rule that
+ * applies to their role:
+ * <pre>
+ * Teller:hours:9-17                           # Access from 9:00 until 17:59, possibly spanning midnight, e.g., 22-6
+ * Teller:days:MON-FRI                         # Access on the given days, as a range or a list, e.g., MON,WED,FRI
+ * *:network:10.0.0.0/8,127.0.0.1              # Access from any of the given networks or addresses
+ * Technical Support:session-age:480           # Sessions lasting less than the given number of minutes
+ * Compliance Officer:attribute:clearance=high # Users with the given attribute, as recorded in the password store
+ * </pre>
+ * Blank lines and text following a # are ignored.
+ *
+ * @author Paul Roode
+ */
+public class AbacRuleSet {
+
+    // The rules in effect when no rule file exists: Tellers can only access the system during business hours
+    public final static List<String> DEFAULT_RULES = List.of("Teller:hours:9-17");
+
+    private final static RoleEnum[] ROLES = RoleEnum.values();
+
+    private final AbacRule[][] rulesByRole; // Indexed by RoleEnum ordinal
+    private final CoarseClock clock;
+
+    private AbacRuleSet(AbacRule[][] rulesByRole, CoarseClock clock) {
+        this.rulesByRole = rulesByRole;
+        this.clock = clock;
+    }
+
+    /**
+     * Loads and compiles the rules in the given file, or the default rules if there is no such file. As falling back
+     * to other rules could grant unintended access, the program terminates if the file cannot be read or compiled.
+     *
+     * @param path  The path of the rule file.
+     * @param clock The clock against which to evaluate time-based rules.
+     * @return The compiled rules.
+     */
+    public static AbacRuleSet load(String path, CoarseClock clock) {
+        Path rulePath = Path.of(path);
+        if (!Files.exists(rulePath)) {
+            return compile(DEFAULT_RULES, clock);
+        }
+        try {
+            return compile(Files.readAllLines(rulePath), clock);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Failed to load the ABAC rules in " + path + ": " + e.getMessage());
+            System.exit(1);
+            return null;
+        }
+    }
+
+    /**
+     * Compiles the given rule definitions.
+     *
+     * @param definitions The rule definitions, one per line.
+     * @param clock       The clock against which to evaluate time-based rules.
+     * @return The compiled rules.
+     * @throws IllegalArgumentException If a definition is malformed.
+     */
+    public static AbacRuleSet compile(List<String> definitions, CoarseClock clock) {
+        List<List<AbacRule>> rules = new ArrayList<>();
+        for (int i = 0; i < ROLES.length; ++i) {
+            rules.add(new ArrayList<>());
+        }
+        for (int line = 1; line <= definitions.size(); ++line) {
+            String definition = definitions.get(line - 1);
+            int commentStart = definition.indexOf('#');
+            definition = (commentStart < 0 ? definition : definition.substring(0, commentStart)).trim();
+            if (definition.isEmpty()) continue;
+            String[] fields = definition.split(":", 3);
+            if (fields.length < 3) {
+                throw new IllegalArgumentException("Line " + line + " is not of the form role:attribute:condition");
+            }
+            AbacRule rule;
+            try {
+                rule = compileRule(fields[1].trim(), fields[2].trim(), clock);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Line " + line + ": " + e.getMessage(), e);
+            }
+            String role = fields[0].trim();
+            if (role.equals("*")) {
+                rules.forEach(roleRules -> roleRules.add(rule));
+            } else if (getRoleEnum(role) != null) {
+                rules.get(getRoleEnum(role).ordinal()).add(rule);
+            } else {
+                throw new IllegalArgumentException("Line " + line + " names an unknown role: " + role);
+            }
+        }
+        AbacRule[][] rulesByRole = new AbacRule[ROLES.length][];
+        for (int i = 0; i < ROLES.length; ++i) {
+            rulesByRole[i] = rules.get(i).toArray(new AbacRule[0]);
+        }
+        return new AbacRuleSet(rulesByRole, clock);
+    }
+
+    /**
+     * Compiles a single rule from its attribute and condition.
+     */
+    private static AbacRule compileRule(String attribute, String condition, CoarseClock clock) {
+        switch (attribute) {
+            case "hours" -> {
+                String[] hours = condition.split("-");
+                if (hours.length != 2) throw new IllegalArgumentException("Expected hours of the form 9-17: " + condition);
+                return new BusinessHoursRule(parseHour(hours[0]), parseHour(hours[1]), clock);
+            }
+            case "days" -> {
+                int days = parseDays(condition);
+                return new CompiledRule((user, context) -> (days & 1 << clock.getDayOfWeek()) != 0,
+                        "System access is only available on " + condition);
+            }
+            case "network" -> {
+                String[] networks = condition.split(",");
+                byte[][] addresses = new byte[networks.length][];
+                int[] prefixLengths = new int[networks.length];
+                for (int i = 0; i < networks.length; ++i) {
+                    String[] network = networks[i].trim().split("/", 2);
+                    addresses[i] = parseAddress(network[0]);
+                    prefixLengths[i] = network.length == 1 ? addresses[i].length * 8 : parseInt(network[1]);
+                    if (prefixLengths[i] < 0 || prefixLengths[i] > addresses[i].length * 8) {
+                        throw new IllegalArgumentException("Invalid network prefix length: " + networks[i]);
+                    }
+                }
+                return new CompiledRule((user, context) -> {
+                    for (int i = 0; i < addresses.length; ++i) {
+                        if (context.isFromNetwork(addresses[i], prefixLengths[i])) return true;
+                    }
+                    return false;
+                }, "System access is not available from this network");
+            }
+            case "session-age" -> {
+                int maxMinutes = parseInt(condition);
+                return new CompiledRule((user, context) -> clock.getEpochMinute() - context.getSessionStartMinute() < maxMinutes,
+                        "Sessions expire after " + maxMinutes + " minutes");
+            }
+            case "attribute" -> {
+                String[] keyAndValue = condition.split("=", 2);
+                if (keyAndValue.length != 2) throw new IllegalArgumentException("Expected an attribute of the form key=value: " + condition);
+                String key = keyAndValue[0].trim();
+                String value = keyAndValue[1].trim();
+                return new CompiledRule((user, context) -> Objects.equals(user.getAttribute(key), value),
+                        "System access requires " + key + "=" + value);
+            }
+            default -> throw new IllegalArgumentException("Unknown attribute: " + attribute);
+        }
+    }
+
+    /**
+     * Finds the first rule applying to the given user's role that denies them access in the given context.
+     *
+     * @param user    The user requesting access.
+     * @param context The context of the user's session.
+     * @return The denying rule, or null if every applicable rule permits access.
+     */
+    public AbacRule getDenyingRule(User user, AccessContext context) {
+        for (AbacRule rule : rulesByRole[user.getRoleEnum().ordinal()]) {
+            if (!rule.permits(user, context)) return rule;
+        }
+        return null;
+    }
+
+    // Getters
+    public CoarseClock getClock() { return clock; }
+    public int getRuleCount(RoleEnum role) { return rulesByRole[role.ordinal()].length; }
+
+    private static int parseHour(String hour) {
+        int parsedHour = parseInt(hour);
+        if (parsedHour > 23) throw new IllegalArgumentException("Invalid hour: " + hour);
+        return parsedHour;
+    }
+
+    private static int parseInt(String value) {
+        try {
+            int parsedValue = Integer.parseInt(value.trim());
+            if (parsedValue < 0) throw new NumberFormatException();
+            return parsedValue;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected a non-negative integer: " + value);
+        }
+    }
+
+    /**
+     * Parses days of the week, e.g., MON-FRI or MON,WED,FRI, into a mask over their ISO values, from 1 (Monday).
+     */
+    private static int parseDays(String days) {
+        int mask = 0;
+        for (String term : days.split(",")) {
+            String[] range = term.trim().split("-");
+            if (range.length > 2) throw new IllegalArgumentException("Invalid day range: " + term);
+            int first = parseDay(range[0]);
+            int last = parseDay(range[range.length - 1]);
+            for (int day = first; ; day = day % 7 + 1) { // Ranges may wrap around the week, e.g., FRI-MON
+                mask |= 1 << day;
+                if (day == last) break;
+            }
+        }
+        return mask;
+    }
+
+    private static int parseDay(String day) {
+        for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+            if (dayOfWeek.name().substring(0, 3).equalsIgnoreCase(day.trim())) return dayOfWeek.getValue();
+        }
+        throw new IllegalArgumentException("Invalid day: " + day);
+    }
+
+    /**
+     * Parses an IPv4 or IPv6 address literal, rejecting host names so that compiling rules never queries DNS.
+     */
+    private static byte[] parseAddress(String address) {
+        if (!address.matches("[0-9A-Fa-f.:]+")) throw new IllegalArgumentException("Invalid address: " + address);
+        try {
+            return InetAddress.getByName(address).getAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Invalid address: " + address);
+        }
+    }
+
+    /**
+     * A rule compiled into a predicate, together with its denial message.
+     */
+    private static class CompiledRule implements AbacRule {
+
+        private final BiPredicate<User, AccessContext> predicate;
+        private final String denialMessage;
+
+        CompiledRule(BiPredicate<User, AccessContext> predicate, String denialMessage) {
+            this.predicate = predicate;
+            this.denialMessage = denialMessage;
+        }
+
+        @Override
+        public boolean permits(User user, AccessContext context) { return predicate.test(user, context); }
+
+        @Override
+        public String getDenialMessage() { return denialMessage; }
+
+    }
+
+}
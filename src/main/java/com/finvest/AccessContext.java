@@ -0,0 +1,63 @@
+package main.java.com.finvest;
+
+import java.net.InetAddress;
+
+/**
+ * The environment of a user's session against which ABAC rules are evaluated: the network address from which the
+ * session originates and the coarse minute at which it started.
+ *
+ * @author Paul Roode
+ */
+public class AccessContext {
+
+    private final InetAddress sourceAddress;
+    private final byte[] sourceAddressBytes;
+    private final long sessionStartMinute;
+
+    /**
+     * Constructs the context of a session originating from the given address and started at the given minute.
+     *
+     * @param sourceAddress      The address from which the session originates.
+     * @param sessionStartMinute The epoch minute at which the session started, as read from a {@link CoarseClock}.
+     */
+    public AccessContext(InetAddress sourceAddress, long sessionStartMinute) {
+        this.sourceAddress = sourceAddress;
+        this.sourceAddressBytes = sourceAddress.getAddress();
+        this.sessionStartMinute = sessionStartMinute;
+    }
+
+    /**
+     * Constructs the context of a session originating from the given address and starting now.
+     *
+     * @param sourceAddress The address from which the session originates.
+     * @param clock         The clock from which to read the current minute.
+     * @return The context of the new session.
+     */
+    public static AccessContext startSession(InetAddress sourceAddress, CoarseClock clock) {
+        return new AccessContext(sourceAddress, clock.getEpochMinute());
+    }
+
+    // Getters
+    public InetAddress getSourceAddress() { return sourceAddress; }
+    public long getSessionStartMinute() { return sessionStartMinute; }
+
+    /**
+     * Determines whether the session originates from within the given network.
+     *
+     * @param network      The address of the network, of the same family as the source address to match.
+     * @param prefixLength The number of leading bits of the network address identifying the network.
+     * @return True if the source address lies within the network, false otherwise.
+     */
+    public boolean isFromNetwork(byte[] network, int prefixLength) {
+        if (sourceAddressBytes.length != network.length) return false;
+        int wholeBytes = prefixLength / 8;
+        for (int i = 0; i < wholeBytes; ++i) {
+            if (sourceAddressBytes[i] != network[i]) return false;
+        }
+        int remainingBits = prefixLength % 8;
+        if (remainingBits == 0) return true;
+        int mask = 0xFF << (8 - remainingBits) & 0xFF;
+        return (sourceAddressBytes[wholeBytes] & mask) == (network[wholeBytes] & mask);
+    }
+
+}
@@ -1,6 +1,7 @@
 package main.java.com.finvest;
 
-import java.text.SimpleDateFormat;
+import java.net.InetAddress;
+import java.time.Duration;
 import java.util.*;
 
 import static main.java.com.finvest.RoleEnum.*;
@@ -32,87 +33,135 @@ public class AccessControlPolicy {
     public final static String REQUEST_CLIENT_ACCOUNT_ACCESS = "Request Client Account Access";
     public final static String VALIDATE_MODIFICATION_OF_INVESTMENT_PORTFOLIO = "Validate Modification of Investment Portfolio";
 
-    // Roles
-    private final Role client;
-    private final Role premiumClient;
-    private final Role financialAdvisor;
-    private final Role financialPlanner;
-    private final Role investmentAnalyst;
-    private final Role technicalSupport;
-    private final Role teller;
-    private final Role complianceOfficer;
+    // The duration for which client account access is granted to Technical Support
+    public final static Duration CLIENT_ACCOUNT_ACCESS_DURATION = Duration.ofMinutes(30);
 
-    // Users with modifications pending validation by a Compliance Officer
-    public Queue<User> usersWithModificationsPendingValidation;
+    // Roles, built once and shared by every policy and user, indexed by RoleEnum ordinal; replaced wholesale on redefinition
+    private static volatile Role[] roles = initRolePermissions();
+
+    // RBAC decisions, cached by role, action, and object
+    private final static DecisionCache decisionCache = new DecisionCache();
+
+    // OBAC workflow queue bounds
+    public final static int WORK_QUEUE_CAPACITY = 4096;
+    public final static int MAX_DRAIN_BATCH_SIZE = 256;
+
+    // The file defining the ABAC rules, loaded at startup
+    public final static String ABAC_RULES_FILE = "./abac.rules";
+
+    // ABAC rules, compiled per role
+    private final AbacRuleSet abacRules;
+
+    // Modifications pending validation by a Compliance Officer
+    private final WorkQueue modificationsPendingValidation;
 
     // Users granting permission to access their account, e.g., for technical support
-    public Queue<User> usersGrantingAccountAccess;
+    private final WorkQueue accountAccessGrants;
+
+    // Records every ABAC and OBAC decision
+    private final AuditLog auditLog;
 
     /**
-     * Constructs an access control matrix representing the RBAC-ABAC-OBAC hybrid access control policy.
+     * Constructs an access control matrix representing the RBAC-ABAC-OBAC hybrid access control policy, whose ABAC
+     * rules are loaded from abac.rules, if present, and evaluated against the shared coarse clock.
      */
     public AccessControlPolicy() {
+        this(AbacRuleSet.load(ABAC_RULES_FILE, CoarseClock.getShared()));
+    }
+
+    /**
+     * Constructs an access control matrix representing the RBAC-ABAC-OBAC hybrid access control policy, with the given
+     * ABAC rules. The RBAC permissions of the matrix are immutable and shared by all policies; only the ABAC rules and
+     * the OBAC workflow state are per policy.
+     *
+     * @param abacRules The ABAC rules, all of which applying to a user's role must permit their access to the system.
+     */
+    public AccessControlPolicy(AbacRuleSet abacRules) {
+        this(abacRules, AuditLog.getShared());
+    }
 
-        // Initialize roles
-        client = new Role(CLIENT);
-        premiumClient = new Role(PREMIUM_CLIENT);
-        financialAdvisor = new Role(FINANCIAL_ADVISOR);
-        financialPlanner = new Role(FINANCIAL_PLANNER);
-        investmentAnalyst = new Role(INVESTMENT_ANALYST);
-        technicalSupport = new Role(TECHNICAL_SUPPORT);
-        teller = new Role(TELLER);
-        complianceOfficer = new Role(COMPLIANCE_OFFICER);
-
-        // Initialize RBAC permissions
-        initRolePermissions();
-
-        // Initialize fields utilized in OBAC operations pertaining to special permissions
-        usersWithModificationsPendingValidation = new LinkedList<>();
-        usersGrantingAccountAccess = new LinkedList<>();
+    /**
+     * Constructs an access control matrix representing the RBAC-ABAC-OBAC hybrid access control policy, with the given
+     * ABAC rules, recording its decisions in the given audit log.
+     *
+     * @param abacRules The ABAC rules, all of which applying to a user's role must permit their access to the system.
+     * @param auditLog  The audit log in which to record ABAC and OBAC decisions.
+     */
+    public AccessControlPolicy(AbacRuleSet abacRules, AuditLog auditLog) {
+        this.abacRules = abacRules;
+        this.auditLog = auditLog;
+
+        // Initialize the lock-free queues utilized in OBAC operations pertaining to special permissions
+        modificationsPendingValidation = new WorkQueue("Modifications pending validation", WORK_QUEUE_CAPACITY);
+        accountAccessGrants = new WorkQueue("Account access grants", WORK_QUEUE_CAPACITY);
     }
 
     /**
      * Initializes Role-Based Access Control (RBAC) permissions.
+     *
+     * @return The roles, indexed by RoleEnum ordinal.
      */
-    private void initRolePermissions() {
-        initRegularClientPermissions();
-        initPremiumClientPermissions();
-        initFinancialAdvisorPermissions();
-        initFinancialPlannerPermissions();
-        initInvestmentAnalystPermissions();
-        initTellerPermissions();
-        initTechnicalSupportPermissions();
-        initComplianceOfficerPermissions();
+    private static Role[] initRolePermissions() {
+        Role[] roles = new Role[RoleEnum.values().length];
+        for (Role role : new Role[]{
+                initRegularClientPermissions(),
+                initPremiumClientPermissions(),
+                initFinancialAdvisorPermissions(),
+                initFinancialPlannerPermissions(),
+                initInvestmentAnalystPermissions(),
+                initTellerPermissions(),
+                initTechnicalSupportPermissions(),
+                initComplianceOfficerPermissions()
+        }) {
+            roles[role.getRoleEnum().ordinal()] = role;
+        }
+        return roles;
     }
 
     /**
-     * Enforces Attribute-Based Access Control (ABAC) on the given user.
+     * Enforces Attribute-Based Access Control (ABAC) on the given user in a new session on this machine, reporting a
+     * denial to the console.
      *
      * @param user The user on which to enforce ABAC.
      * @return True if ABAC-enforced access was granted, false if access was denied.
      */
     public boolean enforceABAC(User user) {
+        return enforceABAC(user, startSession(InetAddress.getLoopbackAddress()));
+    }
 
-        // Tellers can only access the system during business hours, i.e., between 9am and 5pm
-        if (user.getRole().getRoleEnum().equals(TELLER)) {
-
-            // Get the current time
-            Calendar calendar = Calendar.getInstance();
-            SimpleDateFormat simpleDateFormat = new SimpleDateFormat("HH");
-            String time = simpleDateFormat.format(calendar.getTime());
-
-            // Check if the given teller can access the system
-            int hour = Integer.parseInt(time);
-            if (hour < 9 || hour > 17) {
-                System.err.println("System access is only available between 9am and 5pm (the current time is " + time + ":00");
-                return false;
-            }
+    /**
+     * Enforces Attribute-Based Access Control (ABAC) on the given user in the given session, reporting a denial to
+     * the console.
+     *
+     * @param user    The user on which to enforce ABAC.
+     * @param context The context of the user's session.
+     * @return True if ABAC-enforced access was granted, false if access was denied.
+     */
+    public boolean enforceABAC(User user, AccessContext context) {
+        AbacRule denyingRule = abacRules.getDenyingRule(user, context);
+        if (denyingRule != null) {
+            System.err.println(denyingRule.getDenialMessage());
+            auditLog.record(AuditLog.Event.ABAC, AuditLog.Outcome.DENIED, user.getUsername(), denyingRule.getDenialMessage(),
+                    context.getSourceAddress());
+            return false;
         }
+        auditLog.record(AuditLog.Event.ABAC, AuditLog.Outcome.GRANTED, user.getUsername(), null, context.getSourceAddress());
         return true;
     }
 
     /**
-     * Implements Object-Based Access Control (OBAC) to enable users to perform a variety of authorized operations.
+     * Starts the context of a session originating from the given address, against which ABAC is enforced.
+     *
+     * @param sourceAddress The address from which the session originates.
+     * @return The context of the new session.
+     */
+    public AccessContext startSession(InetAddress sourceAddress) {
+        return AccessContext.startSession(sourceAddress, abacRules.getClock());
+    }
+
+    /**
+     * Implements Object-Based Access Control (OBAC) to enable users to perform a variety of authorized operations,
+     * reporting each decision of {@link #authorize} and the outcome of the operation to the console.
      *
      * @param user      The user requesting to perform an operation.
      * @param operation The operation that the user is requesting to perform.
@@ -120,72 +169,77 @@ public class AccessControlPolicy {
      * @return True if the program should continue running after the operation, false if it should subsequently terminate.
      */
     public boolean doOperation(User user, String operation, String object) {
-        Role role = user.getRole();
         switch (operation) {
             case "read" -> { // Enforce OBAC on read operations
-                if (role.getReadPermissions().contains(object)) {
+                if (authorizeOperation(user, Action.READ, Permission.getPermission(object), "read " + object).isPermitted()) {
                     System.out.println("Read permission granted to " + object + "\n");
-                    return true;
+                } else {
+                    System.err.println("Read permission denied\n");
                 }
-                System.err.println("Read permission denied\n");
             }
 
             case "write" -> { // Enforce OBAC on write operations
-                if (role.getWritePermissions().contains(object)) {
-                    System.out.println("Write permission granted to " + object);
-                    if (object.equals(INVESTMENT_PORTFOLIO)) { // Modifications to investment portfolios must be validated by a Compliance Officer
+                Permission permission = Permission.getPermission(object);
+                Decision decision = authorizeOperation(user, Action.WRITE, permission, "write " + object);
+                if (!decision.isPermitted()) {
+                    System.err.println("Write permission denied\n");
+                    break;
+                }
+                System.out.println("Write permission granted to " + object);
+                if (decision == Decision.PERMIT_PENDING_VALIDATION) {
+                    if (submitModificationForValidation(user, permission)) {
                         System.out.println("Modification pending validation by a Compliance Officer\n");
-                        usersWithModificationsPendingValidation.add(user);
+                    } else {
+                        System.err.println("Too many modifications are pending validation; please retry later\n");
                     }
-                    return true;
                 }
-                System.err.println("Write permission denied\n");
             }
 
             case REQUEST_TECHNICAL_SUPPORT -> { // Enforce OBAC on technical support requests
-                if (role.getSpecialPermissions().contains(REQUEST_TECHNICAL_SUPPORT)) {
+                if (!authorizeOperation(user, Action.SPECIAL, Permission.REQUEST_TECHNICAL_SUPPORT, operation).isPermitted()) {
+                    System.err.println("You are not authorized to request technical support\n");
+                } else if (grantAccountAccess(user)) {
                     System.out.println("Account access permission given to Technical Support\n");
-                    usersGrantingAccountAccess.add(user);
-                    return true;
+                } else {
+                    System.err.println("Technical Support is at capacity; please retry later\n");
                 }
-                System.err.println("You are not authorized to request technical support\n");
             }
 
             case VALIDATE_MODIFICATION_OF_INVESTMENT_PORTFOLIO -> { // Enforce OBAC on the validation of modifications to investment portfolios
-                if (role.getSpecialPermissions().contains(VALIDATE_MODIFICATION_OF_INVESTMENT_PORTFOLIO)) {
-                    if (usersWithModificationsPendingValidation.isEmpty()) {
-                        System.out.println("There are no modifications pending validation\n");
-                        return true;
-                    }
-                    while (!usersWithModificationsPendingValidation.isEmpty()) {
-                        System.out.println("Modifications by " + usersWithModificationsPendingValidation.remove().getName() + " validated\n");
-                    }
-                    return true;
+                if (!authorizeOperation(user, Action.SPECIAL, Permission.VALIDATE_MODIFICATION_OF_INVESTMENT_PORTFOLIO, operation).isPermitted()) {
+                    System.err.println("You are not authorized to validate modifications to investment portfolios\n");
+                    break;
+                }
+                int validated = modificationsPendingValidation.drain(workItem ->
+                        System.out.println("Modifications by " + workItem.getUser().getName() + " validated\n"), MAX_DRAIN_BATCH_SIZE);
+                if (validated == 0) {
+                    System.out.println("There are no modifications pending validation\n");
+                } else if (!modificationsPendingValidation.isEmpty()) {
+                    System.out.println("Further modifications remain pending validation\n");
                 }
-                System.err.println("You are not authorized to validate modifications to investment portfolios\n");
             }
 
             case REQUEST_CLIENT_ACCOUNT_ACCESS -> { // Enforce OBAC on the requesting of client account access
-                if (role.getSpecialPermissions().contains(REQUEST_CLIENT_ACCOUNT_ACCESS)) {
-                    if (usersGrantingAccountAccess.isEmpty()) {
-                        System.out.println("There are currently no clients granting access to their account\n");
-                        return true;
-                    }
-                    while (!usersGrantingAccountAccess.isEmpty()) {
-                        User userGrantingAccountAccess = usersGrantingAccountAccess.remove();
-                        System.out.println("Access granted to the account of " + userGrantingAccountAccess.getName());
-                    }
-
-                    /* Augment permissions to authorize client account access, in this case represented by authorizing
-                     * reading a client's Account Balance and Investment Portfolio */
-                    role.addReadPermissions(new String[]{ACCOUNT_BALANCE, INVESTMENT_PORTFOLIO});
-                    System.out.println("Permissions augmented to authorize client account access. The following permissions were updated:");
-                    System.out.println(ANSI_BLUE + "Read permissions: "
-                            + role.getReadPermissions().toString().replace("[", "").replace("]", "")
-                            + ANSI_RESET + "\n");
-                    return true;
+                if (!authorizeOperation(user, Action.SPECIAL, Permission.REQUEST_CLIENT_ACCOUNT_ACCESS, operation).isPermitted()) {
+                    System.err.println("You are not authorized to request access to client accounts\n");
+                    break;
                 }
-                System.err.println("You are not authorized to request access to client accounts\n");
+                int accessed = accountAccessGrants.drain(workItem ->
+                        System.out.println("Access granted to the account of " + workItem.getUser().getName()), MAX_DRAIN_BATCH_SIZE);
+                if (accessed == 0) {
+                    System.out.println("There are currently no clients granting access to their account\n");
+                    break;
+                }
+
+                /* Augment the session's permissions to authorize client account access, in this case represented by
+                 * authorizing reading a client's Account Balance and Investment Portfolio, without modifying the
+                 * shared Technical Support role */
+                user.grantReadPermissions(new Permission[]{Permission.ACCOUNT_BALANCE, Permission.INVESTMENT_PORTFOLIO},
+                        CLIENT_ACCOUNT_ACCESS_DURATION);
+                System.out.println("Permissions augmented to authorize client account access. The following permissions were updated:");
+                System.out.println(ANSI_BLUE + "Read permissions: "
+                        + user.getEffectiveReadPermissions().toString().replace("[", "").replace("]", "")
+                        + ANSI_RESET + "\n");
             }
 
             case "logout" -> {
@@ -196,6 +250,118 @@ public class AccessControlPolicy {
         return true;
     }
 
+    /**
+     * Authorizes an operation requested at the console, as {@link #authorize} does, recording the decision in the
+     * audit log.
+     *
+     * @param user      The user requesting the operation.
+     * @param action    The action of the operation.
+     * @param object    The object of the operation.
+     * @param operation The operation as requested, e.g., "read Client Information".
+     * @return The decision.
+     */
+    private Decision authorizeOperation(User user, Action action, Permission object, String operation) {
+        Decision decision = authorize(user, action, object);
+        auditLog.record(AuditLog.Event.OBAC, switch (decision) {
+            case PERMIT -> AuditLog.Outcome.GRANTED;
+            case PERMIT_PENDING_VALIDATION -> AuditLog.Outcome.GRANTED_PENDING_VALIDATION;
+            case DENY -> AuditLog.Outcome.DENIED;
+        }, user.getUsername(), operation, null);
+        return decision;
+    }
+
+    /**
+     * Decides whether the given subject may perform the given action on the given resource. The decision is a pure
+     * function of the subject's role, the unexpired grants to their session, and the resource: it prints nothing,
+     * allocates nothing, and modifies no workflow state, so that it can be evaluated at high throughput and embedded
+     * in consumers other than the console.
+     *
+     * @param subject  The user requesting to perform the action.
+     * @param action   The action to decide.
+     * @param resource The object of the action, or null if it is unknown, in which case the action is denied.
+     * @return PERMIT_PENDING_VALIDATION for permitted modifications to investment portfolios, which must be validated
+     *         by a Compliance Officer; PERMIT for other permitted actions; and DENY otherwise.
+     */
+    public static Decision authorize(User subject, Action action, Permission resource) {
+        if (!isPermitted(subject, action, resource)) return Decision.DENY;
+        return action == Action.WRITE && resource == Permission.INVESTMENT_PORTFOLIO
+                ? Decision.PERMIT_PENDING_VALIDATION
+                : Decision.PERMIT;
+    }
+
+    /**
+     * Decides a batch of RBAC checks given as columns of IDs, e.g., for reporting jobs checking access to many objects
+     * at once. Unlike {@link #authorize}, subjects are identified by role alone, so grants to individual sessions do
+     * not apply, and a modification pending validation counts as permitted.
+     *
+     * @param roleIds   The RoleEnum ordinal of each check's subject.
+     * @param actionIds The {@link Action#getId()} of each check.
+     * @param objectIds The {@link Permission#getId()} of each check's object.
+     * @return A bitset packed into words, in which bit i % 64 of word i / 64 is set if check i is permitted.
+     */
+    public static long[] authorizeAll(int[] roleIds, int[] actionIds, int[] objectIds) {
+        return decisionCache.isPermitted(roleIds, actionIds, objectIds);
+    }
+
+    /**
+     * Submits the given user's modification of the given object for validation by a Compliance Officer.
+     *
+     * @param user   The user whose modification is pending validation.
+     * @param object The modified object.
+     * @return True if the modification was submitted, false if too many modifications are already pending.
+     */
+    public boolean submitModificationForValidation(User user, Permission object) {
+        return modificationsPendingValidation.submit(new WorkItem(user, object));
+    }
+
+    /**
+     * Grants Technical Support permission to access the given user's account.
+     *
+     * @param user The user granting access to their account.
+     * @return True if the grant was queued, false if Technical Support is at capacity.
+     */
+    public boolean grantAccountAccess(User user) {
+        return accountAccessGrants.submit(new WorkItem(user, Permission.REQUEST_TECHNICAL_SUPPORT));
+    }
+
+    /**
+     * Determines whether the given user is permitted the given action on the given object, either by their role, as
+     * cached in the decision table, or by a grant to their session.
+     *
+     * @param user   The user requesting to perform the action.
+     * @param action The action to check.
+     * @param object The object of the action.
+     * @return True if the action is permitted, false otherwise.
+     */
+    public static boolean isPermitted(User user, Action action, Permission object) {
+        return decisionCache.isPermitted(user.getRoleEnum(), action, object)
+                || user.getPermissionOverlay().grants(action, object, System.nanoTime());
+    }
+
+    /**
+     * Redefines the permissions of a role for every holder of it, discarding every cached decision.
+     *
+     * @param role The new definition of the role.
+     */
+    public static synchronized void redefineRole(Role role) {
+        Role[] redefinedRoles = roles.clone();
+        redefinedRoles[role.getRoleEnum().ordinal()] = role;
+        roles = redefinedRoles;
+        decisionCache.invalidate(); // After publishing the role, so that no fill can cache the old definition as current
+    }
+
+    /**
+     * Gets the cache of RBAC decisions, e.g., to report its hit and miss counts.
+     *
+     * @return The decision cache.
+     */
+    public static DecisionCache getDecisionCache() { return decisionCache; }
+
+    // Getters
+    public WorkQueue getModificationsPendingValidation() { return modificationsPendingValidation; }
+    public WorkQueue getAccountAccessGrants() { return accountAccessGrants; }
+    public AuditLog getAuditLog() { return auditLog; }
+
     /**
      * Gets the role represented by the given RoleEnum.
      *
@@ -203,164 +369,186 @@ public class AccessControlPolicy {
      * @return The desired Role represented by the given RoleEnum.
      */
     public Role getRole(RoleEnum roleEnum) {
-        Role role = null;
-        switch (roleEnum) {
-            case CLIENT -> role = client;
-            case COMPLIANCE_OFFICER -> role = complianceOfficer;
-            case FINANCIAL_ADVISOR -> role = financialAdvisor;
-            case FINANCIAL_PLANNER -> role = financialPlanner;
-            case INVESTMENT_ANALYST -> role = investmentAnalyst;
-            case PREMIUM_CLIENT -> role = premiumClient;
-            case TECHNICAL_SUPPORT -> role = technicalSupport;
-            case TELLER -> role = teller;
-            default -> {
-                System.err.println("Invalid role passed to AccessControlPolicy::getRole");
-                System.exit(1);
-            }
+        return getSharedRole(roleEnum);
+    }
+
+    /**
+     * Gets the immutable role represented by the given RoleEnum, shared by every holder of that role.
+     *
+     * @param roleEnum The RoleEnum representing the Role to retrieve.
+     * @return The desired Role represented by the given RoleEnum.
+     */
+    public static Role getSharedRole(RoleEnum roleEnum) {
+        if (roleEnum == null) {
+            System.err.println("Invalid role passed to AccessControlPolicy::getSharedRole");
+            System.exit(1);
         }
-        return role;
+        return roles[roleEnum.ordinal()];
     }
 
     /**
      * Initializes Regular Client permissions.
      */
-    private void initRegularClientPermissions() {
-        client.addReadPermissions(new String[]{
-                CLIENT_INFORMATION,
-                ACCOUNT_BALANCE,
-                INVESTMENT_PORTFOLIO,
-                FINANCIAL_ADVISOR_CONTACT_DETAILS
-        });
-        client.addWritePermissions(new String[]{
-                CLIENT_INFORMATION
-        });
-        client.addSpecialPermissions(new String[]{
-                REQUEST_TECHNICAL_SUPPORT
-        });
+    private static Role initRegularClientPermissions() {
+        return new Role(CLIENT,
+                new String[]{
+                        CLIENT_INFORMATION,
+                        ACCOUNT_BALANCE,
+                        INVESTMENT_PORTFOLIO,
+                        FINANCIAL_ADVISOR_CONTACT_DETAILS
+                },
+                new String[]{
+                        CLIENT_INFORMATION
+                },
+                new String[]{
+                        REQUEST_TECHNICAL_SUPPORT
+                }
+        );
     }
 
     /**
      * Initializes Premium Client permissions.
      */
-    private void initPremiumClientPermissions() {
-        premiumClient.addReadPermissions(new String[]{
-                CLIENT_INFORMATION,
-                ACCOUNT_BALANCE,
-                INVESTMENT_PORTFOLIO,
-                FINANCIAL_ADVISOR_CONTACT_DETAILS,
-                FINANCIAL_PLANNER_CONTACT_DETAILS,
-                INVESTMENT_ANALYST_CONTACT_DETAILS
-        });
-        premiumClient.addWritePermissions(new String[]{
-                CLIENT_INFORMATION,
-                INVESTMENT_PORTFOLIO
-        });
-        premiumClient.addSpecialPermissions(new String[]{
-                REQUEST_TECHNICAL_SUPPORT
-        });
+    private static Role initPremiumClientPermissions() {
+        return new Role(PREMIUM_CLIENT,
+                new String[]{
+                        CLIENT_INFORMATION,
+                        ACCOUNT_BALANCE,
+                        INVESTMENT_PORTFOLIO,
+                        FINANCIAL_ADVISOR_CONTACT_DETAILS,
+                        FINANCIAL_PLANNER_CONTACT_DETAILS,
+                        INVESTMENT_ANALYST_CONTACT_DETAILS
+                },
+                new String[]{
+                        CLIENT_INFORMATION,
+                        INVESTMENT_PORTFOLIO
+                },
+                new String[]{
+                        REQUEST_TECHNICAL_SUPPORT
+                }
+        );
     }
 
     /**
      * Initializes Financial Advisor permissions.
      */
-    private void initFinancialAdvisorPermissions() {
-        financialAdvisor.addReadPermissions(new String[]{
-                CLIENT_INFORMATION,
-                ACCOUNT_BALANCE,
-                INVESTMENT_PORTFOLIO,
-                FINANCIAL_ADVISOR_CONTACT_DETAILS,
-                FINANCIAL_PLANNER_CONTACT_DETAILS,
-                INVESTMENT_ANALYST_CONTACT_DETAILS,
-                PRIVATE_CONSUMER_INSTRUMENTS
-        });
-        financialAdvisor.addWritePermissions(new String[]{
-                INVESTMENT_PORTFOLIO,
-                FINANCIAL_ADVISOR_CONTACT_DETAILS
-        });
+    private static Role initFinancialAdvisorPermissions() {
+        return new Role(FINANCIAL_ADVISOR,
+                new String[]{
+                        CLIENT_INFORMATION,
+                        ACCOUNT_BALANCE,
+                        INVESTMENT_PORTFOLIO,
+                        FINANCIAL_ADVISOR_CONTACT_DETAILS,
+                        FINANCIAL_PLANNER_CONTACT_DETAILS,
+                        INVESTMENT_ANALYST_CONTACT_DETAILS,
+                        PRIVATE_CONSUMER_INSTRUMENTS
+                },
+                new String[]{
+                        INVESTMENT_PORTFOLIO,
+                        FINANCIAL_ADVISOR_CONTACT_DETAILS
+                },
+                new String[]{}
+        );
     }
 
     /**
      * Initializes Financial Planner permissions.
      */
-    private void initFinancialPlannerPermissions() {
-        financialPlanner.addReadPermissions(new String[]{
-                CLIENT_INFORMATION,
-                ACCOUNT_BALANCE,
-                INVESTMENT_PORTFOLIO,
-                FINANCIAL_ADVISOR_CONTACT_DETAILS,
-                FINANCIAL_PLANNER_CONTACT_DETAILS,
-                INVESTMENT_ANALYST_CONTACT_DETAILS,
-                PRIVATE_CONSUMER_INSTRUMENTS,
-                MONEY_MARKET_INSTRUMENTS
-        });
-        financialPlanner.addWritePermissions(new String[]{
-                INVESTMENT_PORTFOLIO,
-                FINANCIAL_PLANNER_CONTACT_DETAILS
-        });
+    private static Role initFinancialPlannerPermissions() {
+        return new Role(FINANCIAL_PLANNER,
+                new String[]{
+                        CLIENT_INFORMATION,
+                        ACCOUNT_BALANCE,
+                        INVESTMENT_PORTFOLIO,
+                        FINANCIAL_ADVISOR_CONTACT_DETAILS,
+                        FINANCIAL_PLANNER_CONTACT_DETAILS,
+                        INVESTMENT_ANALYST_CONTACT_DETAILS,
+                        PRIVATE_CONSUMER_INSTRUMENTS,
+                        MONEY_MARKET_INSTRUMENTS
+                },
+                new String[]{
+                        INVESTMENT_PORTFOLIO,
+                        FINANCIAL_PLANNER_CONTACT_DETAILS
+                },
+                new String[]{}
+        );
     }
 
     /**
      * Initializes Investment Analyst permissions.
      */
-    private void initInvestmentAnalystPermissions() {
-        investmentAnalyst.addReadPermissions(new String[]{
-                CLIENT_INFORMATION,
-                ACCOUNT_BALANCE,
-                INVESTMENT_PORTFOLIO,
-                FINANCIAL_ADVISOR_CONTACT_DETAILS,
-                FINANCIAL_PLANNER_CONTACT_DETAILS,
-                INVESTMENT_ANALYST_CONTACT_DETAILS,
-                PRIVATE_CONSUMER_INSTRUMENTS,
-                MONEY_MARKET_INSTRUMENTS,
-                DERIVATIVES_TRADING,
-                INTEREST_INSTRUMENTS
-        });
-        investmentAnalyst.addWritePermissions(new String[]{
-                INVESTMENT_PORTFOLIO,
-                INVESTMENT_ANALYST_CONTACT_DETAILS
-        });
+    private static Role initInvestmentAnalystPermissions() {
+        return new Role(INVESTMENT_ANALYST,
+                new String[]{
+                        CLIENT_INFORMATION,
+                        ACCOUNT_BALANCE,
+                        INVESTMENT_PORTFOLIO,
+                        FINANCIAL_ADVISOR_CONTACT_DETAILS,
+                        FINANCIAL_PLANNER_CONTACT_DETAILS,
+                        INVESTMENT_ANALYST_CONTACT_DETAILS,
+                        PRIVATE_CONSUMER_INSTRUMENTS,
+                        MONEY_MARKET_INSTRUMENTS,
+                        DERIVATIVES_TRADING,
+                        INTEREST_INSTRUMENTS
+                },
+                new String[]{
+                        INVESTMENT_PORTFOLIO,
+                        INVESTMENT_ANALYST_CONTACT_DETAILS
+                },
+                new String[]{}
+        );
     }
 
     /**
      * Initializes Teller permissions.
      */
-    private void initTellerPermissions() {
-        teller.addReadPermissions(new String[]{
-                CLIENT_INFORMATION,
-                ACCOUNT_BALANCE,
-                INVESTMENT_PORTFOLIO,
-                FINANCIAL_ADVISOR_CONTACT_DETAILS,
-                FINANCIAL_PLANNER_CONTACT_DETAILS,
-                INVESTMENT_ANALYST_CONTACT_DETAILS,
-        });
+    private static Role initTellerPermissions() {
+        return new Role(TELLER,
+                new String[]{
+                        CLIENT_INFORMATION,
+                        ACCOUNT_BALANCE,
+                        INVESTMENT_PORTFOLIO,
+                        FINANCIAL_ADVISOR_CONTACT_DETAILS,
+                        FINANCIAL_PLANNER_CONTACT_DETAILS,
+                        INVESTMENT_ANALYST_CONTACT_DETAILS
+                },
+                new String[]{},
+                new String[]{}
+        );
     }
 
     /**
      * Initializes Technical Support permissions.
      */
-    private void initTechnicalSupportPermissions() {
-        technicalSupport.addReadPermissions(new String[]{
-                CLIENT_INFORMATION,
-                FINANCIAL_ADVISOR_CONTACT_DETAILS,
-                FINANCIAL_PLANNER_CONTACT_DETAILS,
-                INVESTMENT_ANALYST_CONTACT_DETAILS,
-        });
-        technicalSupport.addSpecialPermissions(new String[]{
-                REQUEST_CLIENT_ACCOUNT_ACCESS
-        });
+    private static Role initTechnicalSupportPermissions() {
+        return new Role(TECHNICAL_SUPPORT,
+                new String[]{
+                        CLIENT_INFORMATION,
+                        FINANCIAL_ADVISOR_CONTACT_DETAILS,
+                        FINANCIAL_PLANNER_CONTACT_DETAILS,
+                        INVESTMENT_ANALYST_CONTACT_DETAILS
+                },
+                new String[]{},
+                new String[]{
+                        REQUEST_CLIENT_ACCOUNT_ACCESS
+                }
+        );
     }
 
     /**
      * Initializes Compliance Officer permissions.
      */
-    private void initComplianceOfficerPermissions() {
-        complianceOfficer.addReadPermissions(new String[]{
-                CLIENT_INFORMATION,
-                INVESTMENT_PORTFOLIO
-        });
-        complianceOfficer.addSpecialPermissions(new String[]{
-                VALIDATE_MODIFICATION_OF_INVESTMENT_PORTFOLIO
-        });
+    private static Role initComplianceOfficerPermissions() {
+        return new Role(COMPLIANCE_OFFICER,
+                new String[]{
+                        CLIENT_INFORMATION,
+                        INVESTMENT_PORTFOLIO
+                },
+                new String[]{},
+                new String[]{
+                        VALIDATE_MODIFICATION_OF_INVESTMENT_PORTFOLIO
+                }
+        );
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package main.java.com.finvest;
+
+/**
+ * An enumeration of the categories of actions that a user can take on an object: reading it, writing it, or
+ * exercising it as a special permission.
+ *
+ * @author Paul Roode
+ */
+public enum Action {
+
+    READ    ( "read"    ),
+    WRITE   ( "write"   ),
+    SPECIAL ( "special" );
+
+    private final String action;
+
+    // Constructors
+    Action(String action) { this.action = action; }
+
+    // Getters
+    public int getId() { return ordinal(); }
+
+    /**
+     * Determines whether the given role permits this action on the given object.
+     *
+     * @param role   The role to check.
+     * @param object The object of the action.
+     * @return True if the role permits the action, false otherwise.
+     */
+    public boolean isPermittedBy(Role role, Permission object) {
+        return switch (this) {
+            case READ    -> role.canRead(object);
+            case WRITE   -> role.canWrite(object);
+            case SPECIAL -> role.hasSpecialPermission(object);
+        };
+    }
+
+    @Override
+    public String toString() {
+        return action;
+    }
+
+}
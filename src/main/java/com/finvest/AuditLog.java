@@ -0,0 +1,467 @@
+package main.java.com.finvest;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An asynchronous audit log of every authentication and authorization decision, written as JSON lines, e.g.,
+ * {@code {"time":"2022-03-01T09:00:00.000Z","event":"authentication","outcome":"granted","user":"kbanks","source":"127.0.0.1"}}.
+ * <p>
+ * Recording a decision never performs I/O: the decision is copied into a slot of a preallocated ring buffer, claimed
+ * with a single CAS as in {@link BoundedMpmcQueue}, and a single background writer thread encodes the published slots
+ * and appends them to the log file in batches, each written with as few FileChannel writes as fit its buffer and
+ * flushed to disk once. Once the log file exceeds its size limit it is rotated, e.g., audit.log to audit.log.1, and
+ * the oldest rotated file is deleted.
+ * <p>
+ * Should the ring buffer fill, e.g., under a login burst faster than the disk, further decisions are dropped rather
+ * than stall the authentication path. Drops are counted and recorded in the log itself as soon as the writer catches
+ * up, and decisions recorded while the buffer is above its high-water mark are counted as backpressure, and wake the
+ * writer early.
+ *
+ * @author Paul Roode
+ */
+public class AuditLog {
+
+    public final static String AUDIT_LOG_FILE = "./audit.log";
+
+    public final static int DEFAULT_CAPACITY = 1 << 16; // Events
+    public final static long DEFAULT_MAX_FILE_BYTES = 64L << 20;
+    public final static int DEFAULT_ROTATED_FILE_COUNT = 10;
+    public final static int WRITE_BUFFER_SIZE = 1 << 18;
+    public final static Duration FLUSH_INTERVAL = Duration.ofMillis(100); // The longest a recorded event awaits writing
+
+    /**
+     * The kinds of decision recorded.
+     */
+    public enum Event {
+        AUTHENTICATION, // A login, as validated by PasswordManager
+        ABAC, // Access to the system, as enforced by AccessControlPolicy::enforceABAC
+        OBAC, // An operation, as authorized by AccessControlPolicy::doOperation
+        AUDIT // The audit log's own reports, e.g., of dropped events
+    }
+
+    /**
+     * The outcomes of recorded decisions.
+     */
+    public enum Outcome {
+        GRANTED,
+        GRANTED_PENDING_VALIDATION,
+        DENIED,
+        THROTTLED,
+        DROPPED
+    }
+
+    private final Path path;
+    private final long maxFileBytes;
+    private final int rotatedFileCount;
+
+    // The ring buffer, whose slots are preallocated and reused
+    private final Slot[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final int highWaterMark;
+    private final AtomicLong claimPosition = new AtomicLong();
+    private volatile long writePosition; // Advanced by the writer alone
+
+    // Writer state, confined to the writer thread
+    private final Thread writer;
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+    private final StringBuilder line = new StringBuilder(256);
+    private FileChannel channel;
+    private long fileSize;
+    private int bufferedEvents;
+    private long reportedDrops;
+    private volatile boolean isClosed; // Set once the log stops accepting events
+    private volatile boolean isQuiesced; // Set once no accepted event remains to be published, for the final drain
+    private final AtomicInteger recordsInFlight = new AtomicInteger(); // Producers past the closed check, publishing
+
+    // Metrics
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder backpressured = new LongAdder();
+    private final LongAdder written = new LongAdder();
+
+    /**
+     * Constructs an audit log appending to the given file, and starts its writer.
+     *
+     * @param path             The path of the log file, which is created if it does not exist.
+     * @param capacity         The number of events the ring buffer holds, rounded up to a power of two of at least 2.
+     * @param maxFileBytes     The size beyond which the log file is rotated.
+     * @param rotatedFileCount The number of rotated files kept, i.e., path.1 through path.rotatedFileCount.
+     */
+    public AuditLog(String path, int capacity, long maxFileBytes, int rotatedFileCount) {
+        if (capacity < 1 || capacity > 1 << 30 || maxFileBytes < 1 || rotatedFileCount < 1) {
+            throw new IllegalArgumentException("Invalid audit log configuration");
+        }
+        this.path = Path.of(path);
+        this.maxFileBytes = maxFileBytes;
+        this.rotatedFileCount = rotatedFileCount;
+        int slotCount = Math.max(2, Integer.highestOneBit(capacity - 1) << 1);
+        slots = new Slot[slotCount];
+        sequences = new AtomicLongArray(slotCount);
+        for (int i = 0; i < slotCount; ++i) {
+            slots[i] = new Slot();
+            sequences.set(i, i);
+        }
+        mask = slotCount - 1;
+        highWaterMark = slotCount - slotCount / 4;
+        writer = new Thread(this::write, "audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Gets the audit log shared by all password managers and access control policies, which appends to audit.log and
+     * is closed, flushing any pending events, when the JVM shuts down.
+     *
+     * @return The shared audit log.
+     */
+    public static AuditLog getShared() {
+        return SharedAuditLog.INSTANCE;
+    }
+
+    /**
+     * Records a decision, without blocking or performing I/O.
+     *
+     * @param event    The kind of decision.
+     * @param outcome  The outcome of the decision.
+     * @param username The username of the subject of the decision.
+     * @param detail   What was decided upon, e.g., an operation and its object, or the reason for a denial; may be null.
+     * @param source   The address from which the subject's request originates; may be null if unknown.
+     * @return True if the decision was recorded, false if it was dropped because the buffer is full or the log is
+     * closed.
+     */
+    public boolean record(Event event, Outcome outcome, String username, String detail, InetAddress source) {
+        recorded.increment();
+        recordsInFlight.incrementAndGet(); // Before the closed check, so that close() waits for this event if it passes
+        try {
+            if (isClosed) {
+                dropped.increment();
+                return false;
+            }
+            return publish(event, outcome, username, detail, source);
+        } finally {
+            recordsInFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Copies a decision into the next free slot of the ring buffer and publishes it to the writer.
+     *
+     * @return True if the decision was published, false if it was dropped because the buffer is full.
+     */
+    private boolean publish(Event event, Outcome outcome, String username, String detail, InetAddress source) {
+        long position = claimPosition.get();
+        int index;
+        for (;;) {
+            index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) { // The slot is free for this position
+                if (claimPosition.compareAndSet(position, position + 1)) break;
+                position = claimPosition.get();
+            } else if (difference < 0) { // The slot has yet to be written from the previous lap, i.e., the buffer is full
+                dropped.increment();
+                return false;
+            } else { // Another producer claimed this position
+                position = claimPosition.get();
+            }
+        }
+        Slot slot = slots[index];
+        slot.timeMillis = System.currentTimeMillis();
+        slot.event = event;
+        slot.outcome = outcome;
+        slot.username = username;
+        slot.detail = detail;
+        slot.source = source;
+        sequences.set(index, position + 1); // Publish the slot to the writer
+        if (position - writePosition >= highWaterMark) {
+            backpressured.increment();
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    /**
+     * Closes the log, waiting for the events being recorded concurrently to be published, and then for the writer to
+     * write and flush every event accepted beforehand. Events recorded afterwards are dropped.
+     */
+    public void close() {
+        isClosed = true;
+        while (recordsInFlight.get() != 0) {
+            Thread.onSpinWait(); // Publishing never blocks, so in-flight producers finish promptly
+        }
+        isQuiesced = true;
+        LockSupport.unpark(writer);
+        boolean isInterrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                isInterrupted = true; // Finish closing, then restore the interrupt
+            }
+        }
+        if (isInterrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Metrics getters
+    public int getCapacity() { return mask + 1; }
+    public int getPendingCount() { return (int) Math.max(0, Math.min(claimPosition.get() - writePosition, mask + 1)); }
+    public long getRecordedCount() { return recorded.sum(); }
+    public long getDroppedCount() { return dropped.sum(); }
+    public long getBackpressureCount() { return backpressured.sum(); }
+    public long getWrittenCount() { return written.sum(); }
+
+    @Override
+    public String toString() {
+        return "pending=" + getPendingCount() + "/" + getCapacity()
+                + ", recorded=" + getRecordedCount()
+                + ", written=" + getWrittenCount()
+                + ", dropped=" + getDroppedCount()
+                + ", backpressure=" + getBackpressureCount();
+    }
+
+    /**
+     * Runs the writer: repeatedly drains the published events into the log file, parking for up to the flush interval
+     * whenever there are none, until the log is closed and drained.
+     */
+    private void write() {
+        try {
+            openChannel();
+        } catch (IOException e) { // Retried with the first batch
+            System.err.println("Unable to open the audit log " + path);
+            e.printStackTrace();
+        }
+        for (;;) {
+            boolean isClosing = isQuiesced; // Read before draining, so that a final drain follows every publication
+            int drained = drain();
+            reportDrops();
+            flush();
+            if (isClosing && drained == 0) break;
+            if (drained == 0) {
+                LockSupport.parkNanos(this, FLUSH_INTERVAL.toNanos());
+            }
+        }
+        closeChannel();
+    }
+
+    /**
+     * Encodes every published event into the write buffer, writing the buffer out whenever it fills, and frees their
+     * slots.
+     *
+     * @return The number of events drained.
+     */
+    private int drain() {
+        int drained = 0;
+        long position = writePosition;
+        for (;;) {
+            int index = (int) position & mask;
+            if (sequences.get(index) != position + 1) break; // Not yet published
+            Slot slot = slots[index];
+            encode(slot.timeMillis, slot.event, slot.outcome, slot.username, slot.detail, slot.source);
+            slot.clear();
+            sequences.set(index, position + mask + 1); // Free the slot for the next lap
+            writePosition = ++position;
+            ++drained;
+        }
+        return drained;
+    }
+
+    /**
+     * Records in the log the number of events dropped since the last report, so that gaps in the log are visible.
+     */
+    private void reportDrops() {
+        long drops = dropped.sum();
+        if (drops > reportedDrops) {
+            System.err.println("The audit log buffer was full; " + (drops - reportedDrops) + " events were dropped");
+            encode(System.currentTimeMillis(), Event.AUDIT, Outcome.DROPPED, null, Long.toString(drops - reportedDrops), null);
+            reportedDrops = drops;
+        }
+    }
+
+    /**
+     * Encodes an event as a JSON line into the write buffer, writing the buffer out first if the line does not fit,
+     * and rotating the log file first if the line would take it beyond its size limit.
+     */
+    private void encode(long timeMillis, Event event, Outcome outcome, String username, String detail, InetAddress source) {
+        line.setLength(0);
+        line.append("{\"time\":\"").append(Instant.ofEpochMilli(timeMillis))
+                .append("\",\"event\":\"").append(event.name().toLowerCase())
+                .append("\",\"outcome\":\"").append(outcome.name().toLowerCase()).append('"');
+        appendField("user", username);
+        appendField("detail", detail);
+        appendField("source", source == null ? null : source.getHostAddress());
+        line.append("}\n");
+        byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+        long fileSizeWithBuffer = fileSize + writeBuffer.position();
+        if (fileSizeWithBuffer > 0 && fileSizeWithBuffer + bytes.length > maxFileBytes) {
+            flush();
+            rotate();
+        } else if (bytes.length > writeBuffer.remaining()) {
+            flush();
+        }
+        if (bytes.length > writeBuffer.remaining()) { // Larger than the buffer as a whole, so written on its own
+            writeBatch(ByteBuffer.wrap(bytes), 1);
+        } else {
+            writeBuffer.put(bytes);
+            ++bufferedEvents;
+        }
+    }
+
+    /**
+     * Appends a string field to the line being encoded, escaping it as JSON, unless its value is null.
+     */
+    private void appendField(String name, String value) {
+        if (value == null) return;
+        line.append(",\"").append(name).append("\":\"");
+        for (int i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+                }
+            }
+        }
+        line.append('"');
+    }
+
+    /**
+     * Writes out the write buffer, if it holds any events.
+     */
+    private void flush() {
+        if (writeBuffer.position() == 0) return;
+        writeBuffer.flip();
+        writeBatch(writeBuffer, bufferedEvents);
+        writeBuffer.clear();
+        bufferedEvents = 0;
+    }
+
+    /**
+     * Appends the given batch of encoded events to the log file and flushes it to disk. Should the write fail, the
+     * batch is counted as dropped, and the file is reopened for the next batch.
+     *
+     * @param batch      The encoded events.
+     * @param eventCount The number of events in the batch.
+     */
+    private void writeBatch(ByteBuffer batch, int eventCount) {
+        try {
+            if (channel == null) {
+                openChannel();
+            }
+            while (batch.hasRemaining()) {
+                fileSize += channel.write(batch);
+            }
+            channel.force(false);
+            written.add(eventCount);
+        } catch (IOException e) {
+            System.err.println("Unable to write " + eventCount + " events to the audit log " + path);
+            e.printStackTrace();
+            dropped.add(eventCount);
+            reportedDrops += eventCount; // Reported here rather than in the log that could not be written
+            closeChannel();
+        }
+    }
+
+    /**
+     * Rotates the log file: path.1 becomes path.2, and so on, the oldest rotated file is deleted, and the current file
+     * becomes path.1, to be replaced by a new file. Should the rotation fail, events continue to be appended to
+     * whichever file is then at the path.
+     */
+    private void rotate() {
+        closeChannel();
+        try {
+            Files.deleteIfExists(rotatedPath(rotatedFileCount));
+            for (int i = rotatedFileCount - 1; i >= 1; --i) {
+                if (Files.exists(rotatedPath(i))) {
+                    Files.move(rotatedPath(i), rotatedPath(i + 1), StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+            Files.move(path, rotatedPath(1), StandardCopyOption.ATOMIC_MOVE);
+            openChannel();
+        } catch (IOException e) { // The file is reopened with the next batch
+            System.err.println("Unable to rotate the audit log " + path);
+            e.printStackTrace();
+        }
+    }
+
+    private void openChannel() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        fileSize = channel.size();
+    }
+
+    private Path rotatedPath(int generation) {
+        return path.resolveSibling(path.getFileName() + "." + generation);
+    }
+
+    private void closeChannel() {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        channel = null;
+    }
+
+    /**
+     * A preallocated slot of the ring buffer, written by the producer that claimed it and read by the writer once
+     * published through its sequence number.
+     */
+    private static class Slot {
+
+        private long timeMillis;
+        private Event event;
+        private Outcome outcome;
+        private String username;
+        private String detail;
+        private InetAddress source;
+
+        private void clear() {
+            event = null;
+            outcome = null;
+            username = null;
+            detail = null;
+            source = null;
+        }
+
+    }
+
+    /**
+     * Lazily initializes the shared audit log on first use.
+     */
+    private static class SharedAuditLog {
+
+        private final static AuditLog INSTANCE = new AuditLog(AUDIT_LOG_FILE, DEFAULT_CAPACITY, DEFAULT_MAX_FILE_BYTES,
+                DEFAULT_ROTATED_FILE_COUNT);
+
+        static {
+            Runtime.getRuntime().addShutdownHook(new Thread(INSTANCE::close, "audit-log-closer"));
+        }
+
+    }
+
+}
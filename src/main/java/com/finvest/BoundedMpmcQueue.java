@@ -0,0 +1,106 @@
+package main.java.com.finvest;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free, multi-producer multi-consumer queue backed by a ring buffer, after Dmitry Vyukov's design. Each
+ * slot carries a sequence number through which producers and consumers claim it with a single CAS on the enqueue or
+ * dequeue position, so that no thread ever blocks another.
+ *
+ * @param <E> The type of the queued elements.
+ * @author Paul Roode
+ */
+public class BoundedMpmcQueue<E> {
+
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong enqueuePosition = new AtomicLong();
+    private final AtomicLong dequeuePosition = new AtomicLong();
+
+    /**
+     * Constructs a queue holding at least the given number of elements.
+     *
+     * @param capacity The minimum capacity, rounded up to a power of two of at least 2.
+     */
+    public BoundedMpmcQueue(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid queue capacity: " + capacity);
+        }
+        int slots = Math.max(2, Integer.highestOneBit(capacity - 1) << 1);
+        elements = new AtomicReferenceArray<>(slots);
+        sequences = new AtomicLongArray(slots);
+        for (int i = 0; i < slots; ++i) {
+            sequences.set(i, i);
+        }
+        mask = slots - 1;
+    }
+
+    /**
+     * Inserts the given element at the tail of the queue, if there is room.
+     *
+     * @param element The element to insert.
+     * @return True if the element was inserted, false if the queue is full.
+     */
+    public boolean offer(E element) {
+        long position = enqueuePosition.get();
+        for (;;) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) { // The slot is free for this position
+                if (enqueuePosition.compareAndSet(position, position + 1)) {
+                    elements.set(index, element);
+                    sequences.set(index, position + 1); // Publish the element to consumers
+                    return true;
+                }
+                position = enqueuePosition.get();
+            } else if (difference < 0) { // The slot still holds an element from the previous lap
+                return false;
+            } else { // Another producer claimed this position
+                position = enqueuePosition.get();
+            }
+        }
+    }
+
+    /**
+     * Removes the element at the head of the queue, if any.
+     *
+     * @return The removed element, or null if the queue is empty.
+     */
+    public E poll() {
+        long position = dequeuePosition.get();
+        for (;;) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) { // The slot holds a published element for this position
+                if (dequeuePosition.compareAndSet(position, position + 1)) {
+                    E element = elements.get(index);
+                    elements.set(index, null);
+                    sequences.set(index, position + mask + 1); // Free the slot for the next lap
+                    return element;
+                }
+                position = dequeuePosition.get();
+            } else if (difference < 0) { // No element has been published at this position yet
+                return null;
+            } else { // Another consumer claimed this position
+                position = dequeuePosition.get();
+            }
+        }
+    }
+
+    /**
+     * Gets the approximate number of queued elements, which is exact when no thread is concurrently offering or polling.
+     *
+     * @return The number of queued elements.
+     */
+    public int size() {
+        long size = enqueuePosition.get() - dequeuePosition.get();
+        return (int) Math.max(0, Math.min(size, mask + 1));
+    }
+
+    public boolean isEmpty() { return size() == 0; }
+    public int capacity() { return mask + 1; }
+
+}
@@ -0,0 +1,152 @@
+package main.java.com.finvest;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A read-only Bloom filter of breached passwords, memory-mapped from a filter file so that a corpus of millions of
+ * passwords is held off-heap and opens without loading. Each password is keyed by its SHA-1 digest, from which the
+ * filter's bit positions are derived by double hashing, so that a lookup costs one digest and a fixed number of bit
+ * probes regardless of the corpus size. Lookups may report false positives at the rate the filter was built for, but
+ * never false negatives.
+ * <p>
+ * The file comprises a header followed by the bit array:
+ * <pre>
+ * header : magic(4) version(2) hashCount(2) bitCount(8) entryCount(8) reserved(8)
+ * bits   : ceil(bitCount / 8) bytes, bit i being bit i % 8 of byte i / 8
+ * </pre>
+ * Filter files are built from plaintext or SHA-1 password lists by {@link BreachedPasswordFilterBuilder}.
+ *
+ * @author Paul Roode
+ */
+public class BreachedPasswordFilter {
+
+    public final static int MAGIC = 0x46564246; // "FVBF"
+    public final static short VERSION = 1;
+    public final static int DIGEST_LENGTH = 20; // SHA-1
+
+    // Header layout
+    final static int HEADER_SIZE = 32;
+    final static int HASH_COUNT = 6;
+    final static int BIT_COUNT = 8;
+    final static int ENTRY_COUNT = 16;
+
+    private final static ThreadLocal<MessageDigest> SHA1 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is unavailable", e); // Every Java platform is required to support SHA-1
+        }
+    });
+
+    private final MappedByteBuffer buffer;
+    private final int hashCount;
+    private final long bitCount;
+    private final long entryCount;
+
+    /**
+     * Constructs a filter by memory-mapping the given filter file.
+     *
+     * @param path The path of the filter file.
+     * @throws IOException If the file cannot be mapped or is not a filter file.
+     */
+    public BreachedPasswordFilter(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION) {
+            throw new IOException(path + " is not a breached password filter file");
+        }
+        hashCount = buffer.getShort(HASH_COUNT);
+        bitCount = buffer.getLong(BIT_COUNT);
+        entryCount = buffer.getLong(ENTRY_COUNT);
+        if (hashCount < 1 || bitCount < 1 || HEADER_SIZE + (bitCount + 7) / 8 > buffer.capacity()) {
+            throw new IOException(path + " is a truncated or corrupt breached password filter file");
+        }
+    }
+
+    /**
+     * Determines whether the given password might be in the breached password corpus.
+     *
+     * @param password The password to look up.
+     * @return False if the password is definitely not in the corpus, true if it probably is.
+     */
+    public boolean mightContain(String password) {
+        return mightContainDigest(digest(password));
+    }
+
+    /**
+     * Determines whether the password with the given SHA-1 digest might be in the breached password corpus.
+     *
+     * @param digest The SHA-1 digest of the UTF-8 encoding of the password to look up.
+     * @return False if the password is definitely not in the corpus, true if it probably is.
+     */
+    public boolean mightContainDigest(byte[] digest) {
+        long h1 = getLong(digest, 0);
+        long h2 = getLong(digest, 8);
+        for (int i = 0; i < hashCount; ++i) {
+            long bit = bitIndex(h1, h2, i, bitCount);
+            if ((buffer.get(HEADER_SIZE + (int) (bit >>> 3)) & 1 << (bit & 7)) == 0) return false;
+        }
+        return true;
+    }
+
+    // Getters
+    public int getHashCount() { return hashCount; }
+    public long getBitCount() { return bitCount; }
+    public long getEntryCount() { return entryCount; }
+
+    /**
+     * Computes the SHA-1 digest of the UTF-8 encoding of the given password, with the calling thread's digest.
+     *
+     * @param password The password to digest.
+     * @return The SHA-1 digest.
+     */
+    public static byte[] digest(String password) {
+        return SHA1.get().digest(password.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Computes the optimal number of bits for a filter of the given number of entries, i.e., -n ln(p) / ln(2)^2.
+     *
+     * @param entryCount        The number of entries the filter will hold.
+     * @param falsePositiveRate The target false-positive rate, between 0 and 1 exclusive.
+     * @return The optimal number of bits.
+     */
+    public static long optimalBitCount(long entryCount, double falsePositiveRate) {
+        return Math.max(Long.SIZE, (long) Math.ceil(-Math.max(entryCount, 1) * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2))));
+    }
+
+    /**
+     * Computes the optimal number of hash functions for a filter of the given size, i.e., (m / n) ln(2).
+     *
+     * @param bitCount   The number of bits in the filter.
+     * @param entryCount The number of entries the filter will hold.
+     * @return The optimal number of hash functions, at least 1.
+     */
+    public static int optimalHashCount(long bitCount, long entryCount) {
+        return (int) Math.max(1, Math.min(Short.MAX_VALUE, Math.round((double) bitCount / Math.max(entryCount, 1) * Math.log(2))));
+    }
+
+    /**
+     * Derives the i-th bit position of an entry from the two halves of its digest, after Kirsch and Mitzenmacher.
+     */
+    static long bitIndex(long h1, long h2, int i, long bitCount) {
+        return Long.remainderUnsigned(h1 + i * (h2 | 1), bitCount);
+    }
+
+    static long getLong(byte[] bytes, int offset) {
+        long value = 0L;
+        for (int i = offset; i < offset + Long.BYTES; ++i) {
+            value = value << 8 | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+
+}
@@ -0,0 +1,130 @@
+package main.java.com.finvest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HexFormat;
+import java.util.stream.Stream;
+
+import static main.java.com.finvest.BreachedPasswordFilter.*;
+
+/**
+ * Builds a {@link BreachedPasswordFilter} file from a breached password list, streaming the list twice: once to size
+ * the filter for its number of entries and once to set their bits, directly in the memory-mapped filter file. The list
+ * either holds one plaintext password per line, or one hexadecimal SHA-1 digest per line, optionally followed by a
+ * colon and a breach count as in published breach corpora.
+ * <p>
+ * Usage: {@code BreachedPasswordFilterBuilder (plaintext | sha1) <source> <destination> [falsePositiveRate]}
+ *
+ * @author Paul Roode
+ */
+public class BreachedPasswordFilterBuilder {
+
+    public final static double DEFAULT_FALSE_POSITIVE_RATE = 0.001;
+
+    public static void main(String[] argv) {
+        if (argv.length < 3 || argv.length > 4 || !(argv[0].equals("plaintext") || argv[0].equals("sha1"))) {
+            System.err.println("Usage: BreachedPasswordFilterBuilder (plaintext | sha1) <source> <destination> [falsePositiveRate]");
+            System.exit(1);
+        }
+        double falsePositiveRate = DEFAULT_FALSE_POSITIVE_RATE;
+        if (argv.length == 4) {
+            try {
+                falsePositiveRate = Double.parseDouble(argv[3]);
+            } catch (NumberFormatException e) {
+                falsePositiveRate = Double.NaN;
+            }
+            if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+                System.err.println("The false-positive rate must be between 0 and 1 exclusive");
+                System.exit(1);
+            }
+        }
+        try {
+            long entries = build(Path.of(argv[1]), argv[0].equals("sha1"), Path.of(argv[2]), falsePositiveRate);
+            System.out.println("Built a filter of " + entries + " breached passwords from " + argv[1] + " into " + argv[2]);
+        } catch (IOException e) {
+            System.err.println("Unable to build a breached password filter from " + argv[1]);
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Builds a filter file from the given breached password list.
+     *
+     * @param source            The breached password list.
+     * @param isSha1List        True if the list holds hexadecimal SHA-1 digests, false if it holds plaintext passwords.
+     * @param destination       The filter file to write.
+     * @param falsePositiveRate The target false-positive rate, between 0 and 1 exclusive.
+     * @return The number of entries added to the filter.
+     * @throws IOException If the list cannot be read, or the filter file cannot be written or would exceed 2 GiB.
+     */
+    public static long build(Path source, boolean isSha1List, Path destination, double falsePositiveRate) throws IOException {
+
+        // Size the filter for the number of entries in the list
+        long entryCount;
+        try (Stream<String> lines = Files.lines(source, StandardCharsets.UTF_8)) {
+            entryCount = lines.filter(line -> !line.isEmpty()).count();
+        }
+        long bitCount = optimalBitCount(entryCount, falsePositiveRate);
+        int hashCount = optimalHashCount(bitCount, entryCount);
+        long fileSize = HEADER_SIZE + (bitCount + 7) / 8;
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IOException("The breached password filter would exceed 2 GiB; raise the false-positive rate");
+        }
+
+        long added = 0;
+        try (FileChannel channel = FileChannel.open(destination, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                byte[] digest = isSha1List ? parseDigest(line) : digest(line);
+                if (digest == null) {
+                    System.err.println("Skipping malformed SHA-1 digest in " + source);
+                    continue;
+                }
+                long h1 = getLong(digest, 0);
+                long h2 = getLong(digest, 8);
+                for (int i = 0; i < hashCount; ++i) {
+                    long bit = bitIndex(h1, h2, i, bitCount);
+                    int index = HEADER_SIZE + (int) (bit >>> 3);
+                    buffer.put(index, (byte) (buffer.get(index) | 1 << (bit & 7)));
+                }
+                ++added;
+            }
+
+            // Write the header last, so that an interrupted build never leaves a valid-looking filter
+            buffer.putShort(4, VERSION);
+            buffer.putShort(HASH_COUNT, (short) hashCount);
+            buffer.putLong(BIT_COUNT, bitCount);
+            buffer.putLong(ENTRY_COUNT, added);
+            buffer.force();
+            buffer.putInt(0, MAGIC);
+            buffer.force();
+        }
+        return added;
+    }
+
+    /**
+     * Parses a line of a SHA-1 list, e.g., 5BAA61E4C9B93F3F0682250B6CF8331B7EE68FD8:3861493.
+     */
+    private static byte[] parseDigest(String line) {
+        int end = line.indexOf(':');
+        String hex = (end < 0 ? line : line.substring(0, end)).trim();
+        if (hex.length() != DIGEST_LENGTH * 2) return null;
+        try {
+            return HexFormat.of().parseHex(hex);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+}
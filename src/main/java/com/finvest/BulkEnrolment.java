@@ -0,0 +1,212 @@
+package main.java.com.finvest;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Enrols users in bulk from a CSV file, non-interactively. The file is streamed in batches; the passwords of each
+ * batch are checked and hashed in parallel across the available cores, and its accepted records are appended to the
+ * password store in one write. Rejected rows are collected, with the reason for their rejection but never their
+ * password, in a reject file. Rows whose username is already enrolled, or repeated within the file, are rejected before
+ * their password is hashed.
+ * <p>
+ * Each row takes the form username,password,role,name,phoneNumber,email; a password may itself contain commas. A
+ * leading header row beginning with "username," is skipped.
+ *
+ * @author Paul Roode
+ */
+public class BulkEnrolment {
+
+    public final static int BATCH_SIZE = 4096;
+    private final static int FIELD_COUNT = 6;
+
+    private final PasswordManager passwordManager;
+
+    /**
+     * Constructs a bulk enrolment into the password store managed by the given password manager.
+     *
+     * @param passwordManager The password manager with which to check, hash, and add user records.
+     */
+    public BulkEnrolment(PasswordManager passwordManager) {
+        this.passwordManager = passwordManager;
+    }
+
+    /**
+     * Enrols the users in the given CSV file.
+     *
+     * @param csv        The CSV file of users to enrol.
+     * @param rejectFile The file in which to collect rejected rows, as lineNumber,username,"reason".
+     * @return A report of the enrolment.
+     * @throws IOException If the CSV file cannot be read, or the reject file cannot be written.
+     */
+    public Report enrol(Path csv, Path rejectFile) throws IOException {
+        long startedAt = System.nanoTime();
+        long enrolled = 0;
+        long processed = 0;
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8);
+             BufferedWriter rejects = Files.newBufferedWriter(rejectFile, StandardCharsets.UTF_8)) {
+            List<Row> batch = new ArrayList<>(BATCH_SIZE);
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                ++lineNumber;
+                if (line.isBlank() || (lineNumber == 1 && line.startsWith("username,"))) continue;
+                batch.add(new Row(lineNumber, line));
+                if (batch.size() == BATCH_SIZE) {
+                    enrolled += enrolBatch(batch, rejects);
+                    processed += batch.size();
+                    batch.clear();
+                }
+            }
+            enrolled += enrolBatch(batch, rejects);
+            processed += batch.size();
+        }
+        return new Report(enrolled, processed - enrolled, System.nanoTime() - startedAt);
+    }
+
+    /**
+     * Checks and hashes the given batch of rows in parallel, then adds the accepted records in one write.
+     *
+     * @return The number of enrolled users.
+     */
+    private int enrolBatch(List<Row> batch, BufferedWriter rejects) throws IOException {
+
+        // Reject taken and repeated usernames up front, against the username index, so that no hash is wasted on them
+        Set<String> batchUsernames = new HashSet<>();
+        for (Row row : batch) {
+            if (row.username.isEmpty()) continue;
+            if (passwordManager.isUsernameEnrolled(row.username)) {
+                row.reject("username already enrolled");
+            } else if (!batchUsernames.add(row.username)) {
+                row.reject("username repeated in the file");
+            }
+        }
+        batch.parallelStream().filter(row -> row.rejection == null).forEach(this::prepare);
+        List<CredentialRecord> userRecords = new ArrayList<>(batch.size());
+        for (Row row : batch) {
+            if (row.userRecord != null) userRecords.add(row.userRecord);
+        }
+        if (!userRecords.isEmpty() && !passwordManager.addUserRecords(userRecords)) {
+            boolean isUsernameTaken = userRecords.stream().anyMatch(userRecord -> passwordManager.isUsernameEnrolled(userRecord.getUsername()));
+            userRecords.clear();
+            for (Row row : batch) {
+                if (row.userRecord == null) continue;
+
+                // A concurrent enrolment took a username since it was checked, so add the records one by one to isolate it
+                if (isUsernameTaken && passwordManager.addUserRecords(List.of(row.userRecord))) {
+                    userRecords.add(row.userRecord);
+                } else {
+                    row.reject(passwordManager.isUsernameEnrolled(row.username)
+                            ? "username already enrolled" : "unable to write to the password store");
+                }
+            }
+        }
+        for (Row row : batch) {
+            if (row.rejection != null) {
+                rejects.append(Long.toString(row.lineNumber)).append(",").append(row.username).append(",\"")
+                        .append(row.rejection.replace("\"", "\"\"")).append("\"\n");
+            }
+        }
+        return userRecords.size();
+    }
+
+    /**
+     * Parses, checks, and hashes the given row, setting either its user record or the reason for its rejection.
+     */
+    private void prepare(Row row) {
+        String[] fields = row.line.split(",", -1);
+        if (fields.length < FIELD_COUNT) {
+            row.reject("expected " + FIELD_COUNT + " fields");
+            return;
+        }
+        String password = String.join(",", Arrays.copyOfRange(fields, 1, fields.length - 4));
+        String role = fields[fields.length - 4].trim();
+        String name = fields[fields.length - 3].trim();
+        String phoneNumber = fields[fields.length - 2].trim();
+        String email = fields[fields.length - 1].trim();
+        if (!passwordManager.validateUsername(row.username) || !passwordManager.validateContactDetail(name)
+                || !passwordManager.validateContactDetail(phoneNumber) || !passwordManager.validateContactDetail(email)) {
+            row.reject("missing or invalid username or contact details");
+            return;
+        }
+        if (!passwordManager.validateRole(role)) {
+            row.reject("invalid role");
+            return;
+        }
+        int violations = passwordManager.getPasswordViolations(row.username, password);
+        if (violations != 0) {
+            row.reject(String.join("; ", passwordManager.getPasswordPolicy().describe(violations)));
+            return;
+        }
+        row.userRecord = passwordManager.createUserRecord(row.username, password, role, name, phoneNumber, email);
+        if (row.userRecord == null) {
+            row.reject("unable to hash the password");
+        }
+    }
+
+    /**
+     * A row of the CSV file, and the outcome of preparing it.
+     */
+    private static class Row {
+
+        private final long lineNumber;
+        private final String line;
+        private final String username;
+        private CredentialRecord userRecord;
+        private String rejection;
+
+        Row(long lineNumber, String line) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+            username = line.split(",", 2)[0].trim();
+        }
+
+        void reject(String reason) {
+            userRecord = null;
+            rejection = reason;
+        }
+
+    }
+
+    /**
+     * A report of a bulk enrolment.
+     */
+    public static class Report {
+
+        private final long enrolled;
+        private final long rejected;
+        private final long elapsedNanos;
+
+        Report(long enrolled, long rejected, long elapsedNanos) {
+            this.enrolled = enrolled;
+            this.rejected = rejected;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        // Getters
+        public long getEnrolled() { return enrolled; }
+        public long getRejected() { return rejected; }
+        public long getElapsedNanos() { return elapsedNanos; }
+
+        public double getRecordsPerSecond() {
+            return elapsedNanos == 0 ? 0 : (enrolled + rejected) * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "enrolled=" + enrolled + ", rejected=" + rejected + ", seconds=" + String.format("%.2f", elapsedNanos / 1e9)
+                    + ", recordsPerSecond=" + String.format("%.1f", getRecordsPerSecond());
+        }
+
+    }
+
+}
@@ -0,0 +1,50 @@
+package main.java.com.finvest;
+
+/**
+ * An ABAC rule confining access to the system to business hours, as read from a {@link CoarseClock}. The hours may
+ * span midnight, e.g., from 22 to 6.
+ *
+ * @author Paul Roode
+ */
+public class BusinessHoursRule implements AbacRule {
+
+    private final int openingHour;
+    private final int closingHour;
+    private final CoarseClock clock;
+
+    /**
+     * Constructs a rule confining access to the given hours.
+     *
+     * @param openingHour The first hour of the day, from 0 to 23, during which access is permitted.
+     * @param closingHour The last hour of the day, from 0 to 23, during which access is permitted, i.e., access is
+     *                    permitted until the end of this hour.
+     * @param clock       The clock from which to read the time.
+     */
+    public BusinessHoursRule(int openingHour, int closingHour, CoarseClock clock) {
+        this.openingHour = openingHour;
+        this.closingHour = closingHour;
+        this.clock = clock;
+    }
+
+    @Override
+    public boolean permits(User user, AccessContext context) {
+        int hour = clock.getHourOfDay();
+        return openingHour <= closingHour
+                ? hour >= openingHour && hour <= closingHour
+                : hour >= openingHour || hour <= closingHour;
+    }
+
+    @Override
+    public String getDenialMessage() {
+        return "System access is only available between " + formatHour(openingHour) + " and " + formatHour(closingHour)
+                + " (the current time is " + String.format("%02d", clock.getHourOfDay()) + ":00)";
+    }
+
+    /**
+     * Formats the given hour of the day on a 12-hour clock, e.g., 17 as "5pm".
+     */
+    private static String formatHour(int hour) {
+        return (hour % 12 == 0 ? 12 : hour % 12) + (hour < 12 ? "am" : "pm");
+    }
+
+}
@@ -0,0 +1,80 @@
+package main.java.com.finvest;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A coarse wall clock for evaluating time-based ABAC rules, which samples an underlying {@link Clock} on each tick and
+ * publishes the local time of day, day of week, and epoch minute packed into a single volatile word. Reading the time
+ * is thus a single load that neither allocates nor formats, and is consistent across its fields from any thread.
+ * <p>
+ * The shared clock is ticked by a single daemon thread every {@link #TICK_INTERVAL}; clocks constructed over a fixed
+ * or offset {@link Clock}, e.g., in tests, are ticked explicitly.
+ *
+ * @author Paul Roode
+ */
+public class CoarseClock {
+
+    public final static Duration TICK_INTERVAL = Duration.ofSeconds(1);
+
+    // Packed time layout
+    private final static int MINUTE_OF_DAY_BITS = 11;
+    private final static int DAY_OF_WEEK_SHIFT = MINUTE_OF_DAY_BITS;
+    private final static int DAY_OF_WEEK_BITS = 3;
+    private final static int EPOCH_MINUTE_SHIFT = DAY_OF_WEEK_SHIFT + DAY_OF_WEEK_BITS;
+
+    private final Clock clock;
+    private volatile long time;
+
+    /**
+     * Constructs a coarse clock over the given clock, sampling it once.
+     *
+     * @param clock The clock to sample on each tick, whose zone determines the local time of day.
+     */
+    public CoarseClock(Clock clock) {
+        this.clock = clock;
+        tick();
+    }
+
+    /**
+     * Gets the coarse clock over the system clock in the default time zone, ticked by a single shared daemon thread.
+     *
+     * @return The shared coarse clock.
+     */
+    public static CoarseClock getShared() {
+        return SharedCoarseClock.INSTANCE;
+    }
+
+    /**
+     * Samples the underlying clock and publishes the sampled time.
+     */
+    public void tick() {
+        ZonedDateTime now = ZonedDateTime.now(clock);
+        time = Math.floorDiv(now.toEpochSecond(), 60) << EPOCH_MINUTE_SHIFT
+                | (long) now.getDayOfWeek().getValue() << DAY_OF_WEEK_SHIFT
+                | now.getHour() * 60L + now.getMinute();
+    }
+
+    // Getters
+    public int getMinuteOfDay() { return (int) (time & (1 << MINUTE_OF_DAY_BITS) - 1); }
+    public int getHourOfDay() { return getMinuteOfDay() / 60; }
+    public int getDayOfWeek() { return (int) (time >>> DAY_OF_WEEK_SHIFT & (1 << DAY_OF_WEEK_BITS) - 1); } // 1 (Monday) to 7 (Sunday)
+    public long getEpochMinute() { return time >> EPOCH_MINUTE_SHIFT; }
+
+    private static class SharedCoarseClock {
+        private final static CoarseClock INSTANCE = new CoarseClock(Clock.systemDefaultZone());
+        static {
+            ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "coarse-clock-ticker");
+                thread.setDaemon(true);
+                return thread;
+            });
+            ticker.scheduleAtFixedRate(INSTANCE::tick, TICK_INTERVAL.toMillis(), TICK_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+}
@@ -0,0 +1,222 @@
+package main.java.com.finvest;
+
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static main.java.com.finvest.RoleEnum.getRoleEnum;
+
+/**
+ * A user record held by a credential store, with its salt and salted hash pre-decoded from their Base64 encodings.
+ *
+ * @author Paul Roode
+ */
+public class CredentialRecord {
+
+    private final static String HASH_PARAMETERS_FIELD = "h=";
+    private final static String ATTRIBUTES_FIELD = "a=";
+
+    private final String username;
+    private final byte[] salt;
+    private final byte[] saltedHash;
+    private final HashParameters hashParameters;
+    private final RoleEnum role;
+
+    // Contact details
+    private final String name;
+    private final String phoneNumber;
+    private final String email;
+
+    // Attributes against which ABAC rules are evaluated, e.g., clearance=high
+    private final Map<String, String> attributes;
+
+    /**
+     * Constructs a credential record with the given attributes and no ABAC attributes.
+     *
+     * @param username       The user's username.
+     * @param salt           The salt utilized to hash the user's password.
+     * @param saltedHash     The salted hash of the user's password.
+     * @param hashParameters The parameters with which the salted hash was derived.
+     * @param role           The user's role.
+     * @param name           The user's name.
+     * @param phoneNumber    The user's phone number.
+     * @param email          The user's email address.
+     */
+    public CredentialRecord(String username, byte[] salt, byte[] saltedHash, HashParameters hashParameters, RoleEnum role,
+                            String name, String phoneNumber, String email) {
+        this(username, salt, saltedHash, hashParameters, role, name, phoneNumber, email, Map.of());
+    }
+
+    /**
+     * Constructs a credential record with the given attributes.
+     *
+     * @param username       The user's username.
+     * @param salt           The salt utilized to hash the user's password.
+     * @param saltedHash     The salted hash of the user's password.
+     * @param hashParameters The parameters with which the salted hash was derived.
+     * @param role           The user's role.
+     * @param name           The user's name.
+     * @param phoneNumber    The user's phone number.
+     * @param email          The user's email address.
+     * @param attributes     The user's ABAC attributes.
+     */
+    public CredentialRecord(String username, byte[] salt, byte[] saltedHash, HashParameters hashParameters, RoleEnum role,
+                            String name, String phoneNumber, String email, Map<String, String> attributes) {
+        this.username = username;
+        this.salt = salt;
+        this.saltedHash = saltedHash;
+        this.hashParameters = hashParameters;
+        this.role = role;
+        this.name = name;
+        this.phoneNumber = phoneNumber;
+        this.email = email;
+        this.attributes = attributes;
+    }
+
+    /**
+     * Parses a passwd.txt user record in the format:
+     * username:salt:hash:role:contactInfo[:h=hashParameters][:a=attributes]
+     * <p>
+     * The optional trailing fields are tagged with a key, and are read only at their fixed positions: the h field holds
+     * the hash parameters, and records without one were hashed with the legacy parameters; the a field holds the
+     * user's ABAC attributes, e.g., a=clearance=high,desk=toronto. A record with any other trailing field is malformed,
+     * so that a field smuggled into a record cannot override its tags.
+     *
+     * @param userRecord The user record to parse.
+     * @return The parsed credential record, or null if the given user record is malformed.
+     */
+    public static CredentialRecord parse(String userRecord) {
+        String[] userAttributes = userRecord.split(":", -1); // Split the record using ":" as the delimiter
+        if (userAttributes.length < 5 || userAttributes.length > 7) {
+            return null;
+        }
+        String[] userContactDetails = userAttributes[4].split(",");
+        RoleEnum role = getRoleEnum(userAttributes[3]);
+        if (userContactDetails.length < 3 || role == null) {
+            return null;
+        }
+        try {
+            HashParameters hashParameters = HashParameters.LEGACY;
+            Map<String, String> attributes = Map.of();
+            int field = 5;
+            if (field < userAttributes.length && userAttributes[field].startsWith(HASH_PARAMETERS_FIELD)) {
+                hashParameters = HashParameters.parse(userAttributes[field++].substring(HASH_PARAMETERS_FIELD.length()));
+            }
+            if (field < userAttributes.length && userAttributes[field].startsWith(ATTRIBUTES_FIELD)) {
+                attributes = parseAttributes(userAttributes[field++].substring(ATTRIBUTES_FIELD.length()));
+            }
+            if (field < userAttributes.length) {
+                return null; // An untagged, misplaced, or repeated trailing field
+            }
+            return new CredentialRecord(
+                    userAttributes[0],
+                    Base64.getDecoder().decode(userAttributes[1]),
+                    Base64.getDecoder().decode(userAttributes[2]),
+                    hashParameters,
+                    role,
+                    userContactDetails[0],
+                    userContactDetails[1],
+                    userContactDetails[2],
+                    attributes
+            );
+        } catch (IllegalArgumentException e) { // Invalid Base64 salt or hash, hash parameters, or attributes
+            return null;
+        }
+    }
+
+    /**
+     * Formats this credential record as a passwd.txt user record in the format:
+     * username:salt:hash:role:contactInfo:h=hashParameters[:a=attributes]
+     *
+     * @return The formatted user record, without a trailing line separator.
+     */
+    public String format() {
+        return username
+                + ":" + Base64.getEncoder().encodeToString(salt)
+                + ":" + Base64.getEncoder().encodeToString(saltedHash)
+                + ":" + role
+                + ":" + name + "," + phoneNumber + "," + email
+                + ":" + HASH_PARAMETERS_FIELD + hashParameters
+                + (attributes.isEmpty() ? "" : ":" + ATTRIBUTES_FIELD + formatAttributes(attributes));
+    }
+
+    /**
+     * Parses ABAC attributes in the format key=value[,key=value]...
+     *
+     * @param attributes The attributes to parse, which may be empty.
+     * @return The parsed attributes, in their given order.
+     * @throws IllegalArgumentException If an attribute is malformed or repeated.
+     */
+    static Map<String, String> parseAttributes(String attributes) {
+        if (attributes.isEmpty()) return Map.of();
+        Map<String, String> parsedAttributes = new LinkedHashMap<>();
+        for (String attribute : attributes.split(",")) {
+            String[] keyAndValue = attribute.split("=", 2);
+            if (keyAndValue.length < 2 || keyAndValue[0].isEmpty() || keyAndValue[1].contains("=")
+                    || parsedAttributes.put(keyAndValue[0], keyAndValue[1]) != null) {
+                throw new IllegalArgumentException("Invalid attribute: " + attribute);
+            }
+        }
+        return Collections.unmodifiableMap(parsedAttributes);
+    }
+
+    /**
+     * Formats ABAC attributes in the format key=value[,key=value]...
+     *
+     * @param attributes The attributes to format, whose keys and values must not contain ":", ",", or "=".
+     * @return The formatted attributes.
+     */
+    static String formatAttributes(Map<String, String> attributes) {
+        StringBuilder formattedAttributes = new StringBuilder();
+        attributes.forEach((key, value) -> {
+            if (!formattedAttributes.isEmpty()) formattedAttributes.append(",");
+            formattedAttributes.append(key).append("=").append(value);
+        });
+        return formattedAttributes.toString();
+    }
+
+    /**
+     * Returns a copy of this credential record with the given salt, salted hash, and hash parameters, e.g., to upgrade
+     * its hash to the currently configured parameters.
+     *
+     * @param salt           The new salt.
+     * @param saltedHash     The new salted hash.
+     * @param hashParameters The parameters with which the new salted hash was derived.
+     * @return The rehashed credential record.
+     */
+    public CredentialRecord withSaltedHash(byte[] salt, byte[] saltedHash, HashParameters hashParameters) {
+        return new CredentialRecord(username, salt, saltedHash, hashParameters, role, name, phoneNumber, email, attributes);
+    }
+
+    /**
+     * Returns a copy of this credential record with the given role, e.g., when a user changes positions.
+     *
+     * @param role The new role.
+     * @return The reassigned credential record.
+     */
+    public CredentialRecord withRole(RoleEnum role) {
+        return new CredentialRecord(username, salt, saltedHash, hashParameters, role, name, phoneNumber, email, attributes);
+    }
+
+    /**
+     * Materializes the User described by this credential record.
+     *
+     * @return A User with this record's role, username, contact details, and ABAC attributes.
+     */
+    public User toUser() {
+        return new User(role, username, name, phoneNumber, email, attributes);
+    }
+
+    // Getters
+    public String getUsername() { return username; }
+    public byte[] getSalt() { return salt; }
+    public byte[] getSaltedHash() { return saltedHash; }
+    public HashParameters getHashParameters() { return hashParameters; }
+    public RoleEnum getRole() { return role; }
+    public String getName() { return name; }
+    public String getPhoneNumber() { return phoneNumber; }
+    public String getEmail() { return email; }
+    public Map<String, String> getAttributes() { return attributes; }
+
+}
@@ -0,0 +1,106 @@
+package main.java.com.finvest;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * A store of user credential records, indexed by their unique usernames.
+ *
+ * @author Paul Roode
+ */
+public interface CredentialStore {
+
+    /**
+     * Gets the credential record enrolled under the given username. Should a legacy store hold several records under
+     * one username, the first enrolled is authoritative.
+     *
+     * @param username The username whose record to get.
+     * @return The matching record, or null if there is none.
+     */
+    CredentialRecord getRecord(String username);
+
+    /**
+     * Verifies a password against the salt and salted hash of the credential record enrolled under the given username,
+     * and gets that record only if the verifier accepts it, so that stores which decode records on lookup need decode
+     * only those of successful logins.
+     *
+     * @param username The username whose record to verify against.
+     * @param verifier The verifier of the password, invoked only if a record is enrolled under the username.
+     * @return The matching record if the verifier accepts it, or null if there is none or the verifier rejects it.
+     */
+    default CredentialRecord getVerifiedRecord(String username, CredentialVerifier verifier) {
+        CredentialRecord record = getRecord(username);
+        return record != null && verifier.verify(record.getHashParameters(), ByteBuffer.wrap(record.getSalt()),
+                ByteBuffer.wrap(record.getSaltedHash())) ? record : null;
+    }
+
+    /**
+     * Durably adds the given credential record to the store and its index, unless its username is already enrolled.
+     * Of concurrent adds of one username, at most one succeeds.
+     *
+     * @param record The record to add.
+     * @return True if the record was successfully added, false if its username is taken or it could not be added.
+     */
+    boolean add(CredentialRecord record);
+
+    /**
+     * Durably adds the given credential records to the store and its index as a single batch, e.g., for bulk
+     * enrolment. No record is added if any of their usernames is already enrolled or repeated among them.
+     *
+     * @param records The records to add, in enrolment order.
+     * @return True if the records were successfully added, false if a username is taken or they could not be added.
+     */
+    boolean addAll(List<CredentialRecord> records);
+
+    /**
+     * Durably replaces the given credential record, e.g., with a copy rehashed under upgraded hash parameters.
+     *
+     * @param existing    The record to replace, as previously returned by {@link #getRecord(String)}.
+     * @param replacement The record with which to replace it, which must have the same username.
+     * @return True if the record was replaced, false if it is no longer in the store or could not be replaced.
+     */
+    boolean replace(CredentialRecord existing, CredentialRecord replacement);
+
+    /**
+     * Durably removes the given credential record, e.g., when a user leaves.
+     *
+     * @param existing The record to remove, as previously returned by {@link #getRecord(String)}.
+     * @return True if the record was removed, false if it is no longer in the store or could not be removed.
+     */
+    boolean remove(CredentialRecord existing);
+
+    /**
+     * Reclaims the space held by replaced and removed records, if the store retains them.
+     *
+     * @return True if the store was compacted, false otherwise.
+     */
+    boolean compact();
+
+    /**
+     * Determines whether the store persists adds, replacements, and removals, e.g., so that callers can skip work
+     * whose result a read-only store would discard.
+     *
+     * @return True if the store is writable, false if it is read-only.
+     */
+    boolean isWritable();
+
+    /**
+     * Verifies a password against the salt and salted hash of a credential record, which may be read-only slices of
+     * the store's own storage, valid only for the duration of the call.
+     */
+    @FunctionalInterface
+    interface CredentialVerifier {
+
+        /**
+         * Verifies a password against the given salt and salted hash.
+         *
+         * @param hashParameters The parameters with which the salted hash was derived.
+         * @param salt           The salt, as the remaining bytes of the buffer.
+         * @param saltedHash     The salted hash, as the remaining bytes of the buffer.
+         * @return True if the password recreates the salted hash, false otherwise.
+         */
+        boolean verify(HashParameters hashParameters, ByteBuffer salt, ByteBuffer saltedHash);
+
+    }
+
+}
@@ -0,0 +1,219 @@
+package main.java.com.finvest;
+
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free count-min sketch of event counts by key over a sliding window, in memory bounded regardless of the
+ * number of distinct keys. Counts are held in two generations of {@link #DEPTH} rows of counters: events are counted
+ * in the current generation, and a key's estimate sums both, so that a count decays away between one and two windows
+ * after its events. Each generation is cleared as it is reused for a new window.
+ * <p>
+ * Each row hashes keys with its own secret random seed, so that an attacker cannot contrive keys that collide with a
+ * victim's to inflate its count. Increments are conservative, raising only the counters at the key's current minimum,
+ * which curbs the overestimation of keys sharing counters with busy ones.
+ * <p>
+ * A key's events may be forgiven, e.g., the failed logins of a user who has since logged in. Since counters are shared
+ * between keys, they are not decremented; instead, the forgiven count of each generation is held exactly for the key,
+ * and subtracted from its estimates until that generation is reused.
+ *
+ * @author Paul Roode
+ */
+public class DecayingCountMinSketch {
+
+    public final static int DEPTH = 4;
+    private final static int GENERATIONS = 2;
+
+    private final static SecureRandom SEED_GENERATOR = new SecureRandom();
+
+    private final int widthMask;
+    private final long[] seeds;
+    private final AtomicIntegerArray[] generations; // Each holds DEPTH rows of width counters
+    private final AtomicLongArray generationWindows; // The window each generation counts, or -1 if it is unused
+    private final CoarseClock clock;
+    private final long windowMinutes;
+    private final Map<String, Forgiven> forgiven = new ConcurrentHashMap<>(); // Keys whose events were forgiven
+
+    /**
+     * Constructs an empty sketch.
+     *
+     * @param width         The number of counters per row, which is rounded up to a power of two.
+     * @param windowMinutes The length in minutes of each generation's window.
+     * @param clock         The clock against which counts decay.
+     */
+    public DecayingCountMinSketch(int width, long windowMinutes, CoarseClock clock) {
+        if (width < 1 || windowMinutes < 1) {
+            throw new IllegalArgumentException("The sketch width and window must be positive");
+        }
+        int roundedWidth = Integer.highestOneBit(width - 1) << 1;
+        widthMask = Math.max(roundedWidth, 1) - 1;
+        seeds = new long[DEPTH];
+        for (int row = 0; row < DEPTH; ++row) {
+            seeds[row] = SEED_GENERATOR.nextLong();
+        }
+        generations = new AtomicIntegerArray[GENERATIONS];
+        generationWindows = new AtomicLongArray(GENERATIONS);
+        for (int generation = 0; generation < GENERATIONS; ++generation) {
+            generations[generation] = new AtomicIntegerArray(DEPTH * (widthMask + 1));
+            generationWindows.set(generation, -1);
+        }
+        this.clock = clock;
+        this.windowMinutes = windowMinutes;
+    }
+
+    /**
+     * Counts an event for the given key.
+     *
+     * @param key The key of the event, e.g., a username.
+     * @return The estimated count of events for the key over the window, including this one.
+     */
+    public int increment(String key) {
+        long window = clock.getEpochMinute() / windowMinutes;
+        AtomicIntegerArray current = generationFor(window);
+        AtomicIntegerArray previous = generationOf(window - 1);
+        int[] cells = new int[DEPTH];
+        int minimum = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; ++row) {
+            cells[row] = row * (widthMask + 1) + (int) (hash(key, seeds[row]) & widthMask);
+            minimum = Math.min(minimum, current.get(cells[row]));
+        }
+        int incremented = minimum + 1;
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; ++row) {
+            int count = current.accumulateAndGet(cells[row], incremented, Math::max); // Conservative update
+            estimate = Math.min(estimate, count + (previous == null ? 0 : previous.get(cells[row])));
+        }
+        return unforgiven(key, window, estimate);
+    }
+
+    /**
+     * Estimates the count of events for the given key over the window, excluding those forgiven. The estimate never
+     * undercounts, but may overcount should the key share counters with others in every row.
+     *
+     * @param key The key to estimate, e.g., a username.
+     * @return The estimated count.
+     */
+    public int estimate(String key) {
+        long window = clock.getEpochMinute() / windowMinutes;
+        AtomicIntegerArray current = generationOf(window);
+        AtomicIntegerArray previous = generationOf(window - 1);
+        if (current == null && previous == null) return 0;
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; ++row) {
+            int cell = row * (widthMask + 1) + (int) (hash(key, seeds[row]) & widthMask);
+            estimate = Math.min(estimate, (current == null ? 0 : current.get(cell)) + (previous == null ? 0 : previous.get(cell)));
+        }
+        return unforgiven(key, window, estimate);
+    }
+
+    /**
+     * Forgives the events counted for the given key so far, so that its estimates count only later events, e.g., to
+     * clear the failed logins of a user who has since logged in. Forgiven counts are held only for keys with events
+     * to forgive, and are pruned once they have decayed.
+     *
+     * @param key The key whose events to forgive, e.g., a username.
+     */
+    public void forgive(String key) {
+        long window = clock.getEpochMinute() / windowMinutes;
+        int current = estimateIn(key, window);
+        int previous = estimateIn(key, window - 1);
+        if (current + previous == 0) {
+            forgiven.remove(key);
+            return;
+        }
+        forgiven.put(key, new Forgiven(window, current, previous));
+        if (forgiven.size() > widthMask + 1) {
+            forgiven.values().removeIf(decayed -> decayed.window < window - 1);
+        }
+    }
+
+    /**
+     * Estimates the count of events for the given key in the given window alone, including those forgiven.
+     */
+    private int estimateIn(String key, long window) {
+        AtomicIntegerArray generation = generationOf(window);
+        if (generation == null) return 0;
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; ++row) {
+            estimate = Math.min(estimate, generation.get(row * (widthMask + 1) + (int) (hash(key, seeds[row]) & widthMask)));
+        }
+        return estimate;
+    }
+
+    /**
+     * Subtracts from the given estimate for the given key in the given window the events forgiven for the key that
+     * have yet to decay, discarding the forgiven counts once they all have.
+     */
+    private int unforgiven(String key, long window, int estimate) {
+        Forgiven forgivenEvents = forgiven.isEmpty() ? null : forgiven.get(key);
+        if (forgivenEvents == null) return estimate;
+        if (window == forgivenEvents.window) {
+            estimate -= forgivenEvents.current + forgivenEvents.previous;
+        } else if (window == forgivenEvents.window + 1) {
+            estimate -= forgivenEvents.current; // The events forgiven from the window before last have decayed
+        } else {
+            forgiven.remove(key, forgivenEvents);
+        }
+        return Math.max(estimate, 0);
+    }
+
+    /**
+     * Gets the generation counting the given window, or null if none is.
+     */
+    private AtomicIntegerArray generationOf(long window) {
+        int generation = (int) (window & GENERATIONS - 1);
+        return generationWindows.get(generation) == window ? generations[generation] : null;
+    }
+
+    /**
+     * Gets the generation counting the given window, claiming and clearing the generation of the window before last
+     * for it if need be. Events counted concurrently with the clearing may be lost, which merely undercounts a window
+     * that has just begun.
+     */
+    private AtomicIntegerArray generationFor(long window) {
+        int generation = (int) (window & GENERATIONS - 1);
+        long generationWindow = generationWindows.get(generation);
+        if (generationWindow < window && generationWindows.compareAndSet(generation, generationWindow, window)) {
+            AtomicIntegerArray counters = generations[generation];
+            for (int cell = 0; cell < counters.length(); ++cell) {
+                counters.set(cell, 0);
+            }
+        }
+        return generations[generation];
+    }
+
+    /**
+     * Hashes the given key with the given seed by FNV-1a over its characters, then mixes the result with the SplitMix64
+     * finalizer so that every bit of the hash depends on the seed.
+     */
+    private static long hash(String key, long seed) {
+        long hash = seed ^ 0xCBF29CE484222325L;
+        for (int i = 0; i < key.length(); ++i) {
+            hash = (hash ^ key.charAt(i)) * 0x100000001B3L;
+        }
+        hash = (hash ^ hash >>> 30) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ hash >>> 27) * 0x94D049BB133111EBL;
+        return hash ^ hash >>> 31;
+    }
+
+    /**
+     * The events forgiven for a key: those counted in the window in which they were forgiven, and in the window before.
+     */
+    private static class Forgiven {
+
+        private final long window;
+        private final int current;
+        private final int previous;
+
+        private Forgiven(long window, int current, int previous) {
+            this.window = window;
+            this.current = current;
+            this.previous = previous;
+        }
+
+    }
+
+}
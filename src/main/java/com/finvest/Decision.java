@@ -0,0 +1,23 @@
+package main.java.com.finvest;
+
+/**
+ * An enumeration of the outcomes of an authorization check by {@link AccessControlPolicy#authorize}.
+ *
+ * @author Paul Roode
+ */
+public enum Decision {
+
+    PERMIT,
+    PERMIT_PENDING_VALIDATION, // Permitted, but the result must be validated by a Compliance Officer
+    DENY;
+
+    /**
+     * Determines whether this decision permits the action, whether or not it must subsequently be validated.
+     *
+     * @return True if the action is permitted, false if it is denied.
+     */
+    public boolean isPermitted() {
+        return this != DENY;
+    }
+
+}
@@ -0,0 +1,178 @@
+package main.java.com.finvest;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lazily filled table of RBAC decisions indexed by dense role, action, and object IDs, so that a repeated check is
+ * a single array load with no hashing. The table is discarded whenever a role is redefined.
+ * <p>
+ * Entries are filled without synchronization; a racing fill can only write the same decision, and a fill that races
+ * an invalidation writes into the discarded table.
+ * <p>
+ * Batches of checks are evaluated over columns of role, action, and object IDs into a packed bitset, in parallel
+ * chunks of whole 64-bit words once a batch exceeds {@link #PARALLEL_BATCH_THRESHOLD} checks.
+ *
+ * @author Paul Roode
+ */
+public class DecisionCache {
+
+    private final static byte UNKNOWN = 0;
+    private final static byte PERMIT = 1;
+    private final static byte DENY = 2;
+
+    private final static RoleEnum[] ROLES = RoleEnum.values();
+    private final static Action[] ACTIONS = Action.values();
+    private final static Permission[] OBJECTS = Permission.values();
+    private final static int ACTION_COUNT = ACTIONS.length;
+    private final static int OBJECT_COUNT = OBJECTS.length;
+    private final static int TABLE_SIZE = ROLES.length * ACTION_COUNT * OBJECT_COUNT;
+
+    // The number of checks above which a batch is split into chunks evaluated in parallel
+    public final static int PARALLEL_BATCH_THRESHOLD = 1 << 14;
+
+    private volatile byte[] decisions = new byte[TABLE_SIZE];
+
+    // Metrics
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Determines whether the given role permits the given action on the given object, consulting the table first.
+     *
+     * @param role   The role to check.
+     * @param action The action to check.
+     * @param object The object of the action.
+     * @return True if the role permits the action, false otherwise.
+     */
+    public boolean isPermitted(RoleEnum role, Action action, Permission object) {
+        if (object == null) return false;
+        byte[] table = decisions; // Read the table before the role, so that a redefinition is never cached as current
+        int index = (role.ordinal() * ACTION_COUNT + action.ordinal()) * OBJECT_COUNT + object.ordinal();
+        byte decision = table[index];
+        if (decision != UNKNOWN) {
+            hits.increment();
+            return decision == PERMIT;
+        }
+        misses.increment();
+        return fill(table, index, role, action, object) == PERMIT;
+    }
+
+    /**
+     * Determines, for each check in a batch given as columns of IDs, whether the role permits the action on the
+     * object. A check with an unknown role, action, or object ID is denied.
+     *
+     * @param roleIds   The RoleEnum ordinal of each check.
+     * @param actionIds The Action ID of each check.
+     * @param objectIds The Permission ID of each check.
+     * @return A bitset packed into words, in which bit i % 64 of word i / 64 is set if check i is permitted.
+     */
+    public long[] isPermitted(int[] roleIds, int[] actionIds, int[] objectIds) {
+        if (actionIds.length != roleIds.length || objectIds.length != roleIds.length) {
+            throw new IllegalArgumentException("Batch columns differ in length: " + roleIds.length + ", "
+                    + actionIds.length + ", " + objectIds.length);
+        }
+        long[] results = new long[(roleIds.length + Long.SIZE - 1) / Long.SIZE];
+        if (roleIds.length > PARALLEL_BATCH_THRESHOLD) {
+            ForkJoinPool.commonPool().invoke(new BatchTask(roleIds, actionIds, objectIds, results, 0, results.length));
+        } else {
+            decide(roleIds, actionIds, objectIds, results, 0, results.length);
+        }
+        return results;
+    }
+
+    /**
+     * Decides the checks packed into the given range of result words, which no other chunk writes.
+     */
+    private void decide(int[] roleIds, int[] actionIds, int[] objectIds, long[] results, int fromWord, int toWord) {
+        byte[] table = decisions;
+        long hitCount = 0;
+        long missCount = 0;
+        for (int word = fromWord; word < toWord; ++word) {
+            long bits = 0L;
+            int end = Math.min(roleIds.length, (word + 1) * Long.SIZE);
+            for (int i = word * Long.SIZE; i < end; ++i) {
+                int role = roleIds[i];
+                int action = actionIds[i];
+                int object = objectIds[i];
+                if (role < 0 || role >= ROLES.length || action < 0 || action >= ACTION_COUNT
+                        || object < 0 || object >= OBJECT_COUNT) continue;
+                int index = (role * ACTION_COUNT + action) * OBJECT_COUNT + object;
+                byte decision = table[index];
+                if (decision == UNKNOWN) {
+                    ++missCount;
+                    decision = fill(table, index, ROLES[role], ACTIONS[action], OBJECTS[object]);
+                } else {
+                    ++hitCount;
+                }
+                if (decision == PERMIT) bits |= 1L << i;
+            }
+            results[word] = bits;
+        }
+        hits.add(hitCount);
+        misses.add(missCount);
+    }
+
+    /**
+     * Decides an uncached check against the shared role and records the decision in the given table.
+     */
+    private static byte fill(byte[] table, int index, RoleEnum role, Action action, Permission object) {
+        byte decision = action.isPermittedBy(AccessControlPolicy.getSharedRole(role), object) ? PERMIT : DENY;
+        table[index] = decision;
+        return decision;
+    }
+
+    /**
+     * Discards every cached decision.
+     */
+    public void invalidate() {
+        decisions = new byte[TABLE_SIZE];
+    }
+
+    /**
+     * Decides a range of the result words of a batch, splitting it in half until it is at most the threshold.
+     */
+    private class BatchTask extends RecursiveAction {
+
+        private final static long serialVersionUID = 1L;
+
+        private final int[] roleIds;
+        private final int[] actionIds;
+        private final int[] objectIds;
+        private final long[] results;
+        private final int fromWord;
+        private final int toWord;
+
+        BatchTask(int[] roleIds, int[] actionIds, int[] objectIds, long[] results, int fromWord, int toWord) {
+            this.roleIds = roleIds;
+            this.actionIds = actionIds;
+            this.objectIds = objectIds;
+            this.results = results;
+            this.fromWord = fromWord;
+            this.toWord = toWord;
+        }
+
+        @Override
+        protected void compute() {
+            if ((toWord - fromWord) * Long.SIZE <= PARALLEL_BATCH_THRESHOLD) {
+                decide(roleIds, actionIds, objectIds, results, fromWord, toWord);
+                return;
+            }
+            int middleWord = (fromWord + toWord) >>> 1;
+            invokeAll(new BatchTask(roleIds, actionIds, objectIds, results, fromWord, middleWord),
+                    new BatchTask(roleIds, actionIds, objectIds, results, middleWord, toWord));
+        }
+
+    }
+
+    // Getters
+    public long getHitCount() { return hits.sum(); }
+    public long getMissCount() { return misses.sum(); }
+
+    @Override
+    public String toString() {
+        return "hits=" + getHitCount() + ", misses=" + getMissCount();
+    }
+
+}
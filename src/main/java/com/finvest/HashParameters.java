@@ -0,0 +1,155 @@
+package main.java.com.finvest;
+
+import java.security.GeneralSecurityException;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The parameters with which a password hash was derived: the PBKDF2 algorithm, iteration count, and key length.
+ * Parameters are recorded alongside each user record as a tag of the form {@code PBKDF2WithHmacSHA256/210000/256},
+ * so that they can be tuned without invalidating previously stored hashes.
+ *
+ * @author Paul Roode
+ */
+public class HashParameters {
+
+    // Supported algorithms, whose indices identify them in the binary password store
+    public final static List<String> ALGORITHMS = List.of(
+            "PBKDF2WithHmacSHA1",
+            "PBKDF2WithHmacSHA256",
+            "PBKDF2WithHmacSHA512"
+    );
+
+    // The parameters of every record stored before parameters were recorded
+    public final static HashParameters LEGACY = new HashParameters("PBKDF2WithHmacSHA1", 65536, 256);
+
+    // System properties for configuring the parameters with which new hashes are derived
+    public final static String PARAMETERS_PROPERTY = "finvest.hashParameters";
+    public final static String CALIBRATION_PROPERTY = "finvest.hashCalibrationMillis";
+
+    private final static int MIN_ITERATIONS = 10000;
+
+    private final String algorithm;
+    private final int iterations;
+    private final int keyLength;
+
+    /**
+     * Constructs hash parameters.
+     *
+     * @param algorithm  The PBKDF2 algorithm, one of {@link #ALGORITHMS}.
+     * @param iterations The iteration count.
+     * @param keyLength  The key length in bits, a multiple of 8.
+     */
+    public HashParameters(String algorithm, int iterations, int keyLength) {
+        if (!ALGORITHMS.contains(algorithm)) {
+            throw new IllegalArgumentException("Unsupported hash algorithm: " + algorithm);
+        }
+        if (iterations < 1 || keyLength < 8 || keyLength % 8 != 0) {
+            throw new IllegalArgumentException("Invalid hash parameters: " + iterations + " iterations, " + keyLength + "-bit key");
+        }
+        this.algorithm = algorithm;
+        this.iterations = iterations;
+        this.keyLength = keyLength;
+    }
+
+    /**
+     * Parses a hash parameter tag of the form algorithm/iterations/keyLength.
+     *
+     * @param tag The tag to parse.
+     * @return The parsed hash parameters.
+     * @throws IllegalArgumentException If the tag is malformed or names an unsupported algorithm.
+     */
+    public static HashParameters parse(String tag) {
+        String[] parameters = tag.split("/");
+        if (parameters.length != 3) {
+            throw new IllegalArgumentException("Malformed hash parameter tag: " + tag);
+        }
+        return new HashParameters(parameters[0], Integer.parseInt(parameters[1]), Integer.parseInt(parameters[2]));
+    }
+
+    /**
+     * Gets the parameters with which new hashes are derived: those given by the finvest.hashParameters system
+     * property if set, else those calibrated to the latency given by the finvest.hashCalibrationMillis system property
+     * if set, else the legacy parameters.
+     *
+     * @return The configured hash parameters.
+     */
+    public static HashParameters getConfigured() {
+        String tag = System.getProperty(PARAMETERS_PROPERTY);
+        String calibrationMillis = System.getProperty(CALIBRATION_PROPERTY);
+        try {
+            if (tag != null) {
+                return parse(tag);
+            }
+            if (calibrationMillis != null) {
+                return calibrate("PBKDF2WithHmacSHA256", 256, Long.parseLong(calibrationMillis));
+            }
+        } catch (IllegalArgumentException | GeneralSecurityException e) {
+            System.err.println("Invalid hash parameter configuration; using " + LEGACY);
+            e.printStackTrace();
+        }
+        return LEGACY;
+    }
+
+    /**
+     * Picks the iteration count at which a derivation with the given algorithm takes the given time on this machine.
+     *
+     * @param algorithm    The PBKDF2 algorithm to calibrate.
+     * @param keyLength    The key length in bits.
+     * @param targetMillis The target derivation latency in milliseconds.
+     * @return The calibrated hash parameters, with the iteration count rounded to the nearest thousand.
+     * @throws GeneralSecurityException If the algorithm is unavailable.
+     */
+    public static HashParameters calibrate(String algorithm, int keyLength, long targetMillis) throws GeneralSecurityException {
+        HashParameters probe = new HashParameters(algorithm, MIN_ITERATIONS, keyLength);
+        char[] password = "calibration".toCharArray();
+        byte[] salt = new byte[16];
+        byte[] derivedKey = new byte[probe.getKeyLengthBytes()];
+        Pbkdf2Engine engine = Pbkdf2Engine.forCurrentThread(probe.getMacAlgorithm());
+
+        // Warm up, then take the fastest of several timed derivations to discount scheduling noise
+        long fastestNanos = Long.MAX_VALUE;
+        for (int i = 0; i < 8; ++i) {
+            long start = System.nanoTime();
+            engine.derive(password, salt, MIN_ITERATIONS, derivedKey, derivedKey.length);
+            if (i >= 3) fastestNanos = Math.min(fastestNanos, System.nanoTime() - start);
+        }
+        long iterations = MIN_ITERATIONS * targetMillis * 1_000_000L / Math.max(fastestNanos, 1);
+        iterations = Math.max(MIN_ITERATIONS, Math.min(Integer.MAX_VALUE, Math.round(iterations / 1000.0) * 1000));
+        return new HashParameters(algorithm, (int) iterations, keyLength);
+    }
+
+    /**
+     * Calibrates hash parameters on this machine and prints the corresponding finvest.hashParameters setting.
+     * Usage: {@code HashParameters [targetMillis] [algorithm]}
+     */
+    public static void main(String[] argv) throws GeneralSecurityException {
+        long targetMillis = argv.length > 0 ? Long.parseLong(argv[0]) : 250;
+        String algorithm = argv.length > 1 ? argv[1] : "PBKDF2WithHmacSHA256";
+        HashParameters hashParameters = calibrate(algorithm, 256, targetMillis);
+        System.out.println("Calibrated " + algorithm + " to " + targetMillis + "ms per derivation on this machine:");
+        System.out.println("-D" + PARAMETERS_PROPERTY + "=" + hashParameters);
+    }
+
+    // Getters
+    public String getAlgorithm() { return algorithm; }
+    public int getAlgorithmId() { return ALGORITHMS.indexOf(algorithm); }
+    public String getMacAlgorithm() { return algorithm.substring("PBKDF2With".length()); }
+    public int getIterations() { return iterations; }
+    public int getKeyLength() { return keyLength; }
+    public int getKeyLengthBytes() { return keyLength / 8; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof HashParameters that)) return false;
+        return iterations == that.iterations && keyLength == that.keyLength && algorithm.equals(that.algorithm);
+    }
+
+    @Override
+    public int hashCode() { return Objects.hash(algorithm, iterations, keyLength); }
+
+    @Override
+    public String toString() { return algorithm + "/" + iterations + "/" + keyLength; }
+
+}
@@ -0,0 +1,133 @@
+package main.java.com.finvest;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A bounded pool of worker threads dedicated to CPU-bound password hashing. The pool is sized to the number of
+ * available cores and fronted by a bounded queue; once the queue is full, further work is rejected immediately rather
+ * than queued, so that a login burst sheds load instead of piling up threads.
+ *
+ * @author Paul Roode
+ */
+public class HashingPool {
+
+    public final static int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    private final ThreadPoolExecutor executor;
+
+    // Metrics
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder started = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    /**
+     * Constructs a hashing pool with the given number of workers and queue capacity.
+     *
+     * @param workers       The number of hashing worker threads.
+     * @param queueCapacity The maximum number of hashing tasks that may wait for a worker.
+     */
+    public HashingPool(int workers, int queueCapacity) {
+        AtomicInteger workerCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread worker = new Thread(runnable, "pbkdf2-worker-" + workerCount.incrementAndGet());
+                    worker.setDaemon(true);
+                    return worker;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.prestartAllCoreThreads();
+    }
+
+    /**
+     * Gets the hashing pool shared by all password managers, sized to the number of available cores.
+     *
+     * @return The shared hashing pool.
+     */
+    public static HashingPool getShared() {
+        return SharedHashingPool.INSTANCE;
+    }
+
+    /**
+     * Submits the given hashing task to the pool.
+     *
+     * @param task The hashing task to run on a worker thread.
+     * @param <T>  The type of the task's result.
+     * @return A future completed with the task's result, or completed exceptionally with a RejectedExecutionException
+     * if the queue is full.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long enqueuedAt = System.nanoTime();
+        submitted.increment();
+        try {
+            executor.execute(() -> {
+                recordWait(System.nanoTime() - enqueuedAt);
+                try {
+                    future.complete(task.get());
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                } finally {
+                    completed.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private void recordWait(long waitNanos) {
+        started.increment();
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    // Metrics getters
+    public int getWorkerCount() { return executor.getCorePoolSize(); }
+    public int getQueueDepth() { return executor.getQueue().size(); }
+    public int getQueueCapacity() { return executor.getQueue().size() + executor.getQueue().remainingCapacity(); }
+    public int getActiveCount() { return executor.getActiveCount(); }
+    public long getSubmittedCount() { return submitted.sum(); }
+    public long getRejectedCount() { return rejected.sum(); }
+    public long getCompletedCount() { return completed.sum(); }
+    public long getMaxWaitNanos() { return maxWaitNanos.get(); }
+
+    /**
+     * Gets the mean time that started tasks waited in the queue before a worker picked them up.
+     *
+     * @return The mean queue wait in nanoseconds, or 0 if no task has started yet.
+     */
+    public long getMeanWaitNanos() {
+        long startedCount = started.sum();
+        return startedCount == 0 ? 0 : totalWaitNanos.sum() / startedCount;
+    }
+
+    @Override
+    public String toString() {
+        return "workers=" + getWorkerCount()
+                + ", active=" + getActiveCount()
+                + ", queueDepth=" + getQueueDepth() + "/" + getQueueCapacity()
+                + ", submitted=" + getSubmittedCount()
+                + ", rejected=" + getRejectedCount()
+                + ", completed=" + getCompletedCount()
+                + ", meanWaitMicros=" + getMeanWaitNanos() / 1000
+                + ", maxWaitMicros=" + getMaxWaitNanos() / 1000;
+    }
+
+    /**
+     * Lazily initializes the shared hashing pool on first use.
+     */
+    private static class SharedHashingPool {
+        private final static HashingPool INSTANCE = new HashingPool(Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_CAPACITY);
+    }
+
+}
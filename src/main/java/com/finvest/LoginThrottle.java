@@ -0,0 +1,94 @@
+package main.java.com.finvest;
+
+import java.net.InetAddress;
+
+/**
+ * Throttles failed logins per username and per source address, so that guessing attacks are shed before any password
+ * hash is derived for them. Failures are counted in {@link DecayingCountMinSketch}es of bounded memory, which decay
+ * over their window: a username is locked out once it accrues {@link #DEFAULT_MAX_USERNAME_FAILURES} failures, e.g.,
+ * under a targeted guessing attack, and a source address is rate limited once it accrues
+ * {@link #DEFAULT_MAX_SOURCE_FAILURES}, e.g., under credential stuffing across many usernames. A successful login
+ * forgives the username's failures, so that a user who mistypes their password is not left on the brink of lockout.
+ * Checking an attempt reads
+ * a handful of counters without locking, so legitimate logins keep their latency under attack.
+ *
+ * @author Paul Roode
+ */
+public class LoginThrottle {
+
+    public final static int DEFAULT_MAX_USERNAME_FAILURES = 5;
+    public final static int DEFAULT_MAX_SOURCE_FAILURES = 50;
+    public final static long DEFAULT_WINDOW_MINUTES = 15;
+    public final static int SKETCH_WIDTH = 1 << 14;
+
+    private final DecayingCountMinSketch usernameFailures;
+    private final DecayingCountMinSketch sourceFailures;
+    private final int maxUsernameFailures;
+    private final int maxSourceFailures;
+
+    /**
+     * Constructs a login throttle with the default limits on the shared coarse clock.
+     */
+    public LoginThrottle() {
+        this(CoarseClock.getShared(), DEFAULT_MAX_USERNAME_FAILURES, DEFAULT_MAX_SOURCE_FAILURES, DEFAULT_WINDOW_MINUTES);
+    }
+
+    /**
+     * Constructs a login throttle.
+     *
+     * @param clock               The clock against which failures decay.
+     * @param maxUsernameFailures The number of failures after which a username is locked out.
+     * @param maxSourceFailures   The number of failures after which a source address is rate limited.
+     * @param windowMinutes       The number of minutes over which failures are counted; each failure decays away
+     *                            between one and two windows after it.
+     */
+    public LoginThrottle(CoarseClock clock, int maxUsernameFailures, int maxSourceFailures, long windowMinutes) {
+        usernameFailures = new DecayingCountMinSketch(SKETCH_WIDTH, windowMinutes, clock);
+        sourceFailures = new DecayingCountMinSketch(SKETCH_WIDTH, windowMinutes, clock);
+        this.maxUsernameFailures = maxUsernameFailures;
+        this.maxSourceFailures = maxSourceFailures;
+    }
+
+    /**
+     * Determines whether a login attempt for the given username from the given source may proceed to have its password
+     * verified.
+     *
+     * @param username The username of the attempt.
+     * @param source   The address from which the attempt originates.
+     * @return True if the attempt may proceed, false if the username is locked out or the source is rate limited.
+     */
+    public boolean isAllowed(String username, InetAddress source) {
+        return !isLockedOut(username) && !isRateLimited(source);
+    }
+
+    /**
+     * Records a failed login attempt for the given username from the given source.
+     *
+     * @param username The username of the attempt.
+     * @param source   The address from which the attempt originates.
+     */
+    public void recordFailure(String username, InetAddress source) {
+        usernameFailures.increment(username);
+        sourceFailures.increment(source.getHostAddress());
+    }
+
+    /**
+     * Records a successful login for the given username, forgiving the username's failures so far. The failures stay
+     * counted against their sources, since a source could otherwise shed its rate limit by logging in to an account of
+     * its own between guesses at others.
+     *
+     * @param username The username of the attempt.
+     */
+    public void recordSuccess(String username) {
+        usernameFailures.forgive(username);
+    }
+
+    public boolean isLockedOut(String username) {
+        return usernameFailures.estimate(username) >= maxUsernameFailures;
+    }
+
+    public boolean isRateLimited(InetAddress source) {
+        return sourceFailures.estimate(source.getHostAddress()) >= maxSourceFailures;
+    }
+
+}
@@ -0,0 +1,387 @@
+package main.java.com.finvest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * A read-only credential store backed by a memory-mapped binary password file, which opens without parsing and
+ * resolves lookups by probing an on-disk hash table and comparing raw username bytes in place.
+ * <p>
+ * The file comprises a header, an open-addressing table of record indices keyed by the FNV-1a hash of the UTF-8
+ * username, fixed-width records, and a heap of UTF-8 usernames and contact details:
+ * <pre>
+ * header  : magic(4) version(2) reserved(2) recordCount(4) tableSlots(4) tableOffset(4) recordsOffset(4) heapOffset(4) reserved(8)
+ * table   : tableSlots x int (record index + 1, or 0 if the slot is empty)
+ * record  : usernameHash(4) usernameOffset(4) usernameLength(2) role(1) saltLength(1) hashLength(1) algorithm(1)
+ *           reserved(2) contactOffset(4) contactLength(2) attributesLength(2) iterations(4) attributesOffset(4)
+ *           salt(16) hash(64)
+ * heap    : UTF-8 bytes
+ * </pre>
+ * Version 1 files predate recorded hash parameters, so their records carry the legacy parameters; version 1 and 2
+ * files predate ABAC attributes, so their records carry none.
+ * Credentials are verified against the salt and hash slots in place, and a record is decoded only once its credentials
+ * are verified. A record whose role, algorithm, or slot lengths are out of range, e.g., in a corrupt file, is reported
+ * and treated as absent.
+ * Binary stores are produced from, and converted back to, passwd.txt by {@link PasswordStoreConverter}.
+ *
+ * @author Paul Roode
+ */
+public class MappedCredentialStore implements CredentialStore {
+
+    public final static int MAGIC = 0x46565057; // "FVPW"
+    public final static short VERSION = 3;
+
+    // Header layout
+    private final static int HEADER_SIZE = 40;
+    private final static int RECORD_COUNT = 8;
+    private final static int TABLE_SLOTS = 12;
+    private final static int TABLE_OFFSET = 16;
+    private final static int RECORDS_OFFSET = 20;
+    private final static int HEAP_OFFSET = 24;
+
+    // Record layout
+    public final static int SALT_SLOT_SIZE = 16;
+    public final static int HASH_SLOT_SIZE = 64;
+    private final static int RECORD_SIZE = 48 + SALT_SLOT_SIZE + HASH_SLOT_SIZE;
+    private final static int USERNAME_HASH = 0;
+    private final static int USERNAME_OFFSET = 4;
+    private final static int USERNAME_LENGTH = 8;
+    private final static int ROLE = 10;
+    private final static int SALT_LENGTH = 11;
+    private final static int HASH_LENGTH = 12;
+    private final static int ALGORITHM = 13;
+    private final static int CONTACT_OFFSET = 16;
+    private final static int CONTACT_LENGTH = 20;
+    private final static int ATTRIBUTES_LENGTH = 22;
+    private final static int ITERATIONS = 24;
+    private final static int ATTRIBUTES_OFFSET = 28;
+    private final static int SALT = 32;
+    private final static int HASH = SALT + SALT_SLOT_SIZE;
+
+    private final static RoleEnum[] ROLES = RoleEnum.values();
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final short version;
+    private final int recordCount;
+    private final int tableMask;
+    private final int tableOffset;
+    private final int recordsOffset;
+
+    /**
+     * Constructs a credential store by memory-mapping the given binary password file.
+     *
+     * @param path The path of the binary password file.
+     * @throws IOException If the file cannot be mapped or is not a binary password file.
+     */
+    public MappedCredentialStore(Path path) throws IOException {
+        this.path = path;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException(path + " is not a binary password file");
+        }
+        version = buffer.getShort(4);
+        if (version < 1 || version > VERSION) {
+            throw new IOException(path + " has unsupported binary password file version " + version);
+        }
+        recordCount = buffer.getInt(RECORD_COUNT);
+        tableMask = buffer.getInt(TABLE_SLOTS) - 1;
+        tableOffset = buffer.getInt(TABLE_OFFSET);
+        recordsOffset = buffer.getInt(RECORDS_OFFSET);
+    }
+
+    @Override
+    public CredentialRecord getRecord(String username) {
+        int record = find(username);
+        return record < 0 ? null : materialize(record, username);
+    }
+
+    /**
+     * Verifies against read-only slices of the salt and hash slots within the mapped buffer, decoding the record only
+     * if the verifier accepts it.
+     */
+    @Override
+    public CredentialRecord getVerifiedRecord(String username, CredentialVerifier verifier) {
+        int record = find(username);
+        if (record < 0 || !isIntact(record)) {
+            return null;
+        }
+        int hashLength = buffer.get(record + HASH_LENGTH) & 0xFF;
+        ByteBuffer salt = buffer.slice(record + SALT, buffer.get(record + SALT_LENGTH) & 0xFF);
+        ByteBuffer saltedHash = buffer.slice(record + HASH, hashLength);
+        return verifier.verify(getHashParameters(record, hashLength), salt, saltedHash) ? materialize(record, username) : null;
+    }
+
+    /**
+     * Binary stores are read-only; enrol against passwd.txt and convert it with {@link PasswordStoreConverter}.
+     */
+    @Override
+    public boolean add(CredentialRecord record) {
+        System.err.println("The binary password store is read-only; enrol users into passwd.txt and convert it");
+        return false;
+    }
+
+    /**
+     * Binary stores are read-only; enrol against passwd.txt and convert it with {@link PasswordStoreConverter}.
+     */
+    @Override
+    public boolean addAll(List<CredentialRecord> records) {
+        System.err.println("The binary password store is read-only; bulk enrol users into passwd.txt and convert it");
+        return false;
+    }
+
+    /**
+     * Binary stores are read-only; change passwords and roles in passwd.txt and convert it with
+     * {@link PasswordStoreConverter}. Outdated hashes are not upgraded upon login, as {@link #isWritable()} is false.
+     */
+    @Override
+    public boolean replace(CredentialRecord existing, CredentialRecord replacement) {
+        System.err.println("The binary password store is read-only; change users in passwd.txt and convert it");
+        return false;
+    }
+
+    /**
+     * Binary stores are read-only; remove users from passwd.txt and convert it with {@link PasswordStoreConverter}.
+     */
+    @Override
+    public boolean remove(CredentialRecord existing) {
+        System.err.println("The binary password store is read-only; remove users from passwd.txt and convert it");
+        return false;
+    }
+
+    /**
+     * Binary stores hold only live records, so there is nothing to compact.
+     */
+    @Override
+    public boolean compact() {
+        return false;
+    }
+
+    /**
+     * Binary stores are read-only.
+     */
+    @Override
+    public boolean isWritable() {
+        return false;
+    }
+
+    /**
+     * Performs the given action on every intact record in the store, in enrolment order.
+     *
+     * @param action The action to perform on each record.
+     */
+    public void forEach(Consumer<CredentialRecord> action) {
+        for (int i = 0; i < recordCount; ++i) {
+            int record = recordsOffset + i * RECORD_SIZE;
+            CredentialRecord credentialRecord = materialize(record, readString(buffer.getInt(record + USERNAME_OFFSET),
+                    buffer.getShort(record + USERNAME_LENGTH) & 0xFFFF));
+            if (credentialRecord != null) {
+                action.accept(credentialRecord);
+            }
+        }
+    }
+
+    /**
+     * Finds the record with the given username by probing linearly from its home slot until an empty slot; records are
+     * inserted in enrolment order, so the first record found under the username is the first enrolled.
+     *
+     * @return The offset of the record, or -1 if there is none.
+     */
+    private int find(String username) {
+        byte[] usernameBytes = username.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(usernameBytes);
+        for (int slot = hash & tableMask; ; slot = (slot + 1) & tableMask) {
+            int recordIndex = buffer.getInt(tableOffset + slot * Integer.BYTES) - 1;
+            if (recordIndex < 0) return -1;
+            int record = recordsOffset + recordIndex * RECORD_SIZE;
+            if (buffer.getInt(record + USERNAME_HASH) == hash && usernameEquals(record, usernameBytes)) {
+                return record;
+            }
+        }
+    }
+
+    /**
+     * Gets the hash parameters of the given record, whose salted hash has the given length.
+     */
+    private HashParameters getHashParameters(int record, int hashLength) {
+        return version == 1
+                ? HashParameters.LEGACY
+                : new HashParameters(HashParameters.ALGORITHMS.get(buffer.get(record + ALGORITHM)),
+                        buffer.getInt(record + ITERATIONS), hashLength * 8);
+    }
+
+    /**
+     * Determines whether the role, algorithm, iteration count, and salt and hash lengths of the given record are within
+     * range, reporting the record if not.
+     */
+    private boolean isIntact(int record) {
+        int saltLength = buffer.get(record + SALT_LENGTH) & 0xFF;
+        int hashLength = buffer.get(record + HASH_LENGTH) & 0xFF;
+        boolean isIntact = (buffer.get(record + ROLE) & 0xFF) < ROLES.length
+                && saltLength <= SALT_SLOT_SIZE
+                && hashLength >= 1 && hashLength <= HASH_SLOT_SIZE
+                && (version == 1 || (buffer.get(record + ALGORITHM) & 0xFF) < HashParameters.ALGORITHMS.size()
+                        && buffer.getInt(record + ITERATIONS) >= 1);
+        if (!isIntact) {
+            System.err.println("Skipping corrupt user record in " + path);
+        }
+        return isIntact;
+    }
+
+    /**
+     * Compares the username of the given record to the given UTF-8 bytes directly within the mapped buffer.
+     */
+    private boolean usernameEquals(int record, byte[] usernameBytes) {
+        if ((buffer.getShort(record + USERNAME_LENGTH) & 0xFFFF) != usernameBytes.length) return false;
+        int usernameOffset = buffer.getInt(record + USERNAME_OFFSET);
+        for (int i = 0; i < usernameBytes.length; ++i) {
+            if (buffer.get(usernameOffset + i) != usernameBytes[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Materializes the credential record at the given offset, which has the given username.
+     *
+     * @return The credential record, or null if it is corrupt.
+     */
+    private CredentialRecord materialize(int record, String username) {
+        if (!isIntact(record)) {
+            return null;
+        }
+        byte[] salt = new byte[buffer.get(record + SALT_LENGTH) & 0xFF];
+        byte[] saltedHash = new byte[buffer.get(record + HASH_LENGTH) & 0xFF];
+        buffer.get(record + SALT, salt);
+        buffer.get(record + HASH, saltedHash);
+        String[] contactDetails = readString(buffer.getInt(record + CONTACT_OFFSET),
+                buffer.getShort(record + CONTACT_LENGTH) & 0xFFFF).split(",");
+        if (contactDetails.length < 3) {
+            System.err.println("Skipping corrupt user record in " + path);
+            return null;
+        }
+        HashParameters hashParameters = getHashParameters(record, saltedHash.length);
+        Map<String, String> attributes = version < 3
+                ? Map.of()
+                : CredentialRecord.parseAttributes(readString(buffer.getInt(record + ATTRIBUTES_OFFSET),
+                        buffer.getShort(record + ATTRIBUTES_LENGTH) & 0xFFFF));
+        return new CredentialRecord(username, salt, saltedHash, hashParameters, ROLES[buffer.get(record + ROLE) & 0xFF],
+                contactDetails[0], contactDetails[1], contactDetails[2], attributes);
+    }
+
+    private String readString(int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the given records to a new binary password file.
+     *
+     * @param records The records to write, in enrolment order.
+     * @param path    The path of the binary password file to write.
+     * @throws IOException If the file cannot be written or a record does not fit the fixed-width slots.
+     */
+    public static void write(List<CredentialRecord> records, Path path) throws IOException {
+
+        // Size the table at a load factor of at most one half, so that probe sequences stay short
+        int tableSlots = Integer.highestOneBit(Math.max(records.size(), 1) * 2 - 1) << 1;
+        int tableOffset = HEADER_SIZE;
+        int recordsOffset = tableOffset + tableSlots * Integer.BYTES;
+        int heapOffset = recordsOffset + records.size() * RECORD_SIZE;
+
+        // Encode the heap strings up front to size the file
+        byte[][] usernames = new byte[records.size()][];
+        byte[][] contacts = new byte[records.size()][];
+        byte[][] attributes = new byte[records.size()][];
+        long heapSize = 0;
+        for (int i = 0; i < records.size(); ++i) {
+            CredentialRecord record = records.get(i);
+            usernames[i] = record.getUsername().getBytes(StandardCharsets.UTF_8);
+            contacts[i] = (record.getName() + "," + record.getPhoneNumber() + "," + record.getEmail()).getBytes(StandardCharsets.UTF_8);
+            attributes[i] = CredentialRecord.formatAttributes(record.getAttributes()).getBytes(StandardCharsets.UTF_8);
+            if (record.getSalt().length > SALT_SLOT_SIZE || record.getSaltedHash().length > HASH_SLOT_SIZE) {
+                throw new IOException("The salt or hash of " + record.getUsername() + " does not fit the binary format");
+            }
+            if (usernames[i].length > 0xFFFF || contacts[i].length > 0xFFFF || attributes[i].length > 0xFFFF) {
+                throw new IOException("The username, contact details, or attributes of " + record.getUsername() + " are too long");
+            }
+            heapSize += usernames[i].length + contacts[i].length + attributes[i].length;
+        }
+        long fileSize = heapOffset + heapSize;
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IOException("The binary password file would exceed 2 GiB");
+        }
+
+        ByteBuffer out = ByteBuffer.allocate((int) fileSize);
+        out.putInt(0, MAGIC);
+        out.putShort(4, VERSION);
+        out.putInt(RECORD_COUNT, records.size());
+        out.putInt(TABLE_SLOTS, tableSlots);
+        out.putInt(TABLE_OFFSET, tableOffset);
+        out.putInt(RECORDS_OFFSET, recordsOffset);
+        out.putInt(HEAP_OFFSET, heapOffset);
+        int heap = heapOffset;
+        for (int i = 0; i < records.size(); ++i) {
+            CredentialRecord record = records.get(i);
+            int offset = recordsOffset + i * RECORD_SIZE;
+            int hash = hash(usernames[i]);
+            out.putInt(offset + USERNAME_HASH, hash);
+            out.putInt(offset + USERNAME_OFFSET, heap);
+            out.putShort(offset + USERNAME_LENGTH, (short) usernames[i].length);
+            out.put(heap, usernames[i]);
+            heap += usernames[i].length;
+            out.put(offset + ROLE, (byte) record.getRole().ordinal());
+            out.put(offset + SALT_LENGTH, (byte) record.getSalt().length);
+            out.put(offset + HASH_LENGTH, (byte) record.getSaltedHash().length);
+            out.put(offset + ALGORITHM, (byte) record.getHashParameters().getAlgorithmId());
+            out.putInt(offset + ITERATIONS, record.getHashParameters().getIterations());
+            out.putInt(offset + CONTACT_OFFSET, heap);
+            out.putShort(offset + CONTACT_LENGTH, (short) contacts[i].length);
+            out.put(heap, contacts[i]);
+            heap += contacts[i].length;
+            out.putInt(offset + ATTRIBUTES_OFFSET, heap);
+            out.putShort(offset + ATTRIBUTES_LENGTH, (short) attributes[i].length);
+            out.put(heap, attributes[i]);
+            heap += attributes[i].length;
+            out.put(offset + SALT, record.getSalt());
+            out.put(offset + HASH, record.getSaltedHash());
+
+            // Insert the record into the first free slot of its probe sequence
+            int slot = hash & (tableSlots - 1);
+            while (out.getInt(tableOffset + slot * Integer.BYTES) != 0) {
+                slot = (slot + 1) & (tableSlots - 1);
+            }
+            out.putInt(tableOffset + slot * Integer.BYTES, i + 1);
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Computes the 32-bit FNV-1a hash of the given bytes.
+     */
+    private static int hash(byte[] bytes) {
+        int hash = 0x811C9DC5;
+        for (byte b : bytes) {
+            hash = (hash ^ (b & 0xFF)) * 0x01000193;
+        }
+        return hash;
+    }
+
+}
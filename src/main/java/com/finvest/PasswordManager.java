@@ -1,13 +1,14 @@
 package main.java.com.finvest;
 
-import javax.crypto.SecretKeyFactory;
-import javax.crypto.spec.PBEKeySpec;
 import java.io.*;
-import java.security.NoSuchAlgorithmException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
-import java.security.spec.InvalidKeySpecException;
-import java.security.spec.KeySpec;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import static main.java.com.finvest.RoleEnum.getRoleEnum;
 
@@ -18,15 +19,96 @@ import static main.java.com.finvest.RoleEnum.getRoleEnum;
  */
 public class PasswordManager {
 
-    public List<String> prohibitedPasswords; // A list of prohibited passwords
+    public final static String PASSWORD_FILE = "./passwd.txt";
+    public final static String BINARY_PASSWORD_FILE = "./passwd.bin";
+    public final static String BREACHED_PASSWORD_FILTER_FILE = "./breached-passwords.bloom";
+
+    private final static SecureRandom SALT_GENERATOR = new SecureRandom(); // Shared by every enrolling and rehashing thread
+
+    public Set<String> prohibitedPasswords; // A small set of prohibited passwords, checked exactly
+    private final BreachedPasswordFilter breachedPasswords; // A filter of breached passwords, or null if there is none
+    private final PasswordPolicy passwordPolicy; // The rules to which new passwords must adhere
+    private final CredentialStore credentialStore; // An index of the user records in the password store
+    private final HashingPool hashingPool; // Workers on which asynchronous verifications are hashed
+    private final HashParameters hashParameters; // The parameters with which new hashes are derived
+    private final Set<String> usernamesBeingRehashed; // Users whose records are being upgraded to the current parameters
+    private final LoginThrottle loginThrottle; // Sheds guessing attacks before their passwords are hashed
+    private final byte[] decoySalt; // The salt with which the passwords of unknown usernames are hashed
+    private volatile byte[] decoySaltedHash; // A random hash against which the passwords of unknown usernames are verified
+    private volatile HashParameters decoyHashParameters; // Those of the last record verified against
+    private final LongAdder decoyVerifications = new LongAdder();
+    private final AuditLog auditLog; // Records every authentication decision
 
     /**
-     * Constructs a PasswordManager for initializing and managing the password store.
+     * Constructs a PasswordManager for initializing and managing the password store. The binary password store,
+     * passwd.bin, is opened if it exists; otherwise, passwd.txt is.
      */
     public PasswordManager() {
+        this(openPasswordStore());
+    }
+
+    /**
+     * Constructs a PasswordManager for managing the given credential store, recording its authentication decisions in
+     * the shared audit log.
+     *
+     * @param credentialStore The credential store in which to enrol and look up users.
+     */
+    public PasswordManager(CredentialStore credentialStore) {
+        this(credentialStore, AuditLog.getShared());
+    }
+
+    /**
+     * Constructs a PasswordManager for managing the given credential store.
+     *
+     * @param credentialStore The credential store in which to enrol and look up users.
+     * @param auditLog        The audit log in which to record authentication decisions.
+     */
+    public PasswordManager(CredentialStore credentialStore, AuditLog auditLog) {
+
+        // Initialize the set of prohibited passwords with common weak passwords
+        prohibitedPasswords = new HashSet<>();
+        String[] commonWeakPasswords = {
+                "Pa$$word1",
+                "Qwerty123!",
+                "Q@z123wsx"
+        };
+        addProhibitedPasswords(commonWeakPasswords);
+        breachedPasswords = openBreachedPasswordFilter();
+        passwordPolicy = PasswordPolicy.DEFAULT;
+
+        this.credentialStore = credentialStore;
+        hashingPool = HashingPool.getShared();
+        hashParameters = HashParameters.getConfigured();
+        usernamesBeingRehashed = ConcurrentHashMap.newKeySet();
+        loginThrottle = new LoginThrottle();
+        decoySalt = new byte[16];
+        SALT_GENERATOR.nextBytes(decoySalt);
+        decoyHashParameters = hashParameters;
+        decoySaltedHash = new byte[hashParameters.getKeyLengthBytes()];
+        SALT_GENERATOR.nextBytes(decoySaltedHash);
+        this.auditLog = auditLog;
+    }
+
+    /**
+     * Opens the password store, loading it into memory once rather than parsing it on every login.
+     *
+     * @return The memory-mapped passwd.bin store if it exists, or the passwd.txt store otherwise.
+     */
+    private static CredentialStore openPasswordStore() {
+
+        // Prefer the binary password store, which opens instantly regardless of its size
+        File passwdBin = new File(BINARY_PASSWORD_FILE);
+        if (passwdBin.exists()) {
+            try {
+                return new MappedCredentialStore(passwdBin.toPath());
+            } catch (IOException e) {
+                System.err.println("Unable to open passwd.bin file; falling back to passwd.txt");
+                e.printStackTrace();
+            }
+        }
 
         // Initialize passwd.txt in the root directory
-        File passwd = new File("./passwd.txt");
+        File passwd = new File(PASSWORD_FILE);
         try {
             passwd.createNewFile();
             passwd.getParentFile().mkdirs();
@@ -39,19 +121,31 @@ public class PasswordManager {
         passwd.setReadable(true, false);
         passwd.setWritable(true);
 
-        // Initialize the list of prohibited passwords with common weak passwords
-        prohibitedPasswords = new ArrayList<>();
-        String[] commonWeakPasswords = {
-                "Pa$$word1",
-                "Qwerty123!",
-                "Q@z123wsx"
-        };
-        addProhibitedPasswords(commonWeakPasswords);
+        return new TextCredentialStore(PASSWORD_FILE);
+    }
+
+    /**
+     * Opens the breached password filter, if one has been built with {@link BreachedPasswordFilterBuilder}.
+     *
+     * @return The memory-mapped filter, or null if there is no filter file or it cannot be opened.
+     */
+    private static BreachedPasswordFilter openBreachedPasswordFilter() {
+        File filterFile = new File(BREACHED_PASSWORD_FILTER_FILE);
+        if (!filterFile.exists()) {
+            return null;
+        }
+        try {
+            return new BreachedPasswordFilter(filterFile.toPath());
+        } catch (IOException e) {
+            System.err.println("Unable to open the breached password filter; only common weak passwords are prohibited");
+            e.printStackTrace();
+            return null;
+        }
     }
 
     /**
      * Adds a user record to the passwd.txt file in the format:
-     * username:salt:hash:role:contactInfo
+     * username:salt:hash:role:contactInfo:h=hashParameters
      *
      * @param username    The user's username.
      * @param password    The user's password, an input to the password hashing algorithm.
@@ -59,157 +153,424 @@ public class PasswordManager {
      * @param name        The user's name.
      * @param phoneNumber The user's phone number.
      * @param email       The user's email address.
-     * @return True if the record was successfully added to passwd.txt, false otherwise.
+     * @return True if the record was successfully added to passwd.txt, false if the username is taken, the username or a
+     * contact detail is invalid, or the record could not be added.
      */
     public boolean addUserRecordToPasswordFile(String username, String password, String role, String name, String phoneNumber, String email) {
+        if (isUsernameEnrolled(username)) {
+            return false; // Spare the hash derivation; the store rejects the record regardless
+        }
+        CredentialRecord userRecord = createUserRecord(username, password, role, name, phoneNumber, email);
+        if (userRecord == null) {
+            return false; // The record was not added
+        }
 
-        // Generate a 16-byte salt for hashing the user's password
+        /* Append the user record to passwd.txt, keeping the in-memory index in sync; the store rejects the record if
+         * its username was taken by a concurrent enrolment in the meantime */
+        return credentialStore.add(userRecord);
+    }
+
+    /**
+     * Changes the password of the user with the given username, subject to proactive password checking, by salting and
+     * hashing the new password with the current hash parameters.
+     *
+     * @param username    The user's username.
+     * @param newPassword The user's new password.
+     * @return True if the password was changed, false if the user is not enrolled, the password was rejected, or the
+     * record could not be updated.
+     */
+    public boolean changePassword(String username, String newPassword) {
+        CredentialRecord userRecord = credentialStore.getRecord(username);
+        if (userRecord == null || !checkPassword(username, newPassword)) {
+            return false;
+        }
         byte[] salt = new byte[16];
-        new SecureRandom().nextBytes(salt);
-        String saltStr = Base64.getEncoder().encodeToString(salt);
+        SALT_GENERATOR.nextBytes(salt);
+        byte[] saltedHash = getSaltedHash(newPassword, salt, hashParameters);
+        return saltedHash != null && credentialStore.replace(userRecord, userRecord.withSaltedHash(salt, saltedHash, hashParameters));
+    }
 
-        // Generate a salted hash of the user's password
-        String saltedHash = getSaltedHash(password, salt);
+    /**
+     * Changes the role of the user with the given username.
+     *
+     * @param username The user's username.
+     * @param role     The user's new role.
+     * @return True if the role was changed, false if the user is not enrolled, the role is invalid, or the record could
+     * not be updated.
+     */
+    public boolean changeRole(String username, String role) {
+        CredentialRecord userRecord = credentialStore.getRecord(username);
+        if (userRecord == null || !validateRole(role)) {
+            return false;
+        }
+        return credentialStore.replace(userRecord, userRecord.withRole(getRoleEnum(role)));
+    }
 
-        // Generate the user record
-        String userRecord = username + ":" + saltStr + ":" + saltedHash + ":" + role + ":" + name + "," + phoneNumber + "," + email;
+    /**
+     * Removes the user with the given username from the password store.
+     *
+     * @param username The user's username.
+     * @return True if the user was removed, false if the user is not enrolled or could not be removed.
+     */
+    public boolean removeUser(String username) {
+        CredentialRecord userRecord = credentialStore.getRecord(username);
+        return userRecord != null && credentialStore.remove(userRecord);
+    }
 
-        // Append the user record to passwd.txt
-        try {
-            BufferedWriter writer = new BufferedWriter(new FileWriter("./passwd.txt", true));
-            writer.append(userRecord).append("\n");
-            writer.close();
-        } catch (IOException e) {
-            e.printStackTrace();
-            return false; // The record was not added
+    /**
+     * Compacts the password store on the calling thread, reclaiming the space held by changed and removed records.
+     *
+     * @return True if the store was compacted, false otherwise.
+     */
+    public boolean compactPasswordStore() {
+        return credentialStore.compact();
+    }
+
+    /**
+     * Determines whether a user is enrolled under the given username, in constant time against the username index.
+     *
+     * @param username The username to look up.
+     * @return True if the username is taken, false otherwise.
+     */
+    public boolean isUsernameEnrolled(String username) {
+        return credentialStore.getRecord(username) != null;
+    }
+
+    /**
+     * Creates a user record by salting and hashing the given password with the current hash parameters, without adding
+     * it to the password store, e.g., so that bulk enrolment can hash records in parallel and add them in batches.
+     *
+     * @param username    The user's username.
+     * @param password    The user's password, an input to the password hashing algorithm.
+     * @param role        The user's role.
+     * @param name        The user's name.
+     * @param phoneNumber The user's phone number.
+     * @param email       The user's email address.
+     * @return The user record, or null if the username or a contact detail is invalid, or the password could not be
+     * hashed.
+     */
+    public CredentialRecord createUserRecord(String username, String password, String role, String name, String phoneNumber, String email) {
+        if (!validateUsername(username) || !validateContactDetail(name) || !validateContactDetail(phoneNumber)
+                || !validateContactDetail(email)) {
+            System.err.println("Usernames and contact details must be nonempty, and must not contain \":\" or \",\"");
+            return null;
         }
-        return true; // The record was successfully appended to passwd.txt
+
+        // Generate a 16-byte salt for hashing the user's password
+        byte[] salt = new byte[16];
+        SALT_GENERATOR.nextBytes(salt);
+
+        // Generate a salted hash of the user's password with the current hash parameters
+        byte[] saltedHash = getSaltedHash(password, salt, hashParameters);
+        if (saltedHash == null) {
+            return null;
+        }
+        return new CredentialRecord(username, salt, saltedHash, hashParameters, getRoleEnum(role), name, phoneNumber, email);
     }
 
     /**
-     * Gets a validated User by parsing passwd.txt for a user record containing the given attributes.
+     * Adds the given user records to the password store as a single batch.
+     *
+     * @param userRecords The user records to add, as created by {@link #createUserRecord}.
+     * @return True if the records were successfully added, false otherwise.
+     */
+    public boolean addUserRecords(List<CredentialRecord> userRecords) {
+        return credentialStore.addAll(userRecords);
+    }
+
+    /**
+     * Gets a validated User by looking up the user record indexed under the given username, deriving exactly one hash.
+     * If the user's record was hashed with outdated parameters, it is rehashed with the current parameters in the
+     * background, unless the password store is read-only. If no user is enrolled under the username, the password is verified against a decoy instead, so
+     * that an unknown username takes as long to reject as a wrong password, rather than betraying which usernames are
+     * enrolled.
      *
      * @param username The username of the User to get.
      * @param password The password of the User to get.
      * @return The validated User with the given username and password.
      */
     public User getValidatedUser(String username, String password) {
-        User user;
-        String[] userAttributes;
-        try { // Parse passwd.txt for the given username
-            BufferedReader reader = new BufferedReader(new FileReader("./passwd.txt"));
-            String userRecord;
-            while ((userRecord = reader.readLine()) != null) {
-                userAttributes = userRecord.split(":"); // Split the record using ":" as the delimiter
-                if (userAttributes[0].equals(username)) {
-                    System.out.println("Verifying credentials...");
-
-                    /* Recreate the salted hash of the user's password utilizing the given password
-                     * and the salt retrieved from the user record in passwd.txt */
-                    byte[] salt = Base64.getDecoder().decode(userAttributes[1]);
-                    String recreatedSaltedHash = getSaltedHash(password, salt);
-
-                    // Verify the given password by comparing the recreated salted hash to that stored in passwd.txt
-                    if (Objects.equals(recreatedSaltedHash, userAttributes[2])) {
-                        String[] userContactDetails = userAttributes[4].split(",");
-                        user = new User(getRoleEnum(userAttributes[3]), userAttributes[0], userContactDetails[0], userContactDetails[1], userContactDetails[2]);
-                        reader.close();
-                        return user;
-                    }
-                }
-            }
-            reader.close(); // Unable to validate user
-            return null;
-        } catch (IOException e) {
-            System.err.println("Unable to read passwd.txt file");
+        return audit(username, validateCredentials(username, password), null);
+    }
+
+    /**
+     * Validates the given credentials, as {@link #getValidatedUser(String, String)} does, without auditing the
+     * decision.
+     */
+    private User validateCredentials(String username, String password) {
+        System.out.println("Verifying credentials...");
+
+        /* Verify the given password by recreating the salted hash of the user's password, utilizing the salt and hash
+         * parameters retrieved from the user record in the password store, and comparing it to that stored, in constant
+         * time; the store decodes the record only if the password is verified */
+        PasswordVerifier verifier = new PasswordVerifier(password);
+        CredentialRecord userRecord = credentialStore.getVerifiedRecord(username, verifier);
+        if (verifier.userHashParameters == null) {
+            verifyDecoy(password);
+            return null; // Unable to validate user
+        }
+        if (!verifier.userHashParameters.equals(decoyHashParameters)) {
+            decoyHashParameters = verifier.userHashParameters; // Written only on change, to keep logins from contending
+        }
+        if (userRecord == null) {
+            return null; // Unable to validate user
+        }
+        if (!userRecord.getHashParameters().equals(hashParameters) && credentialStore.isWritable()) {
+            rehashInBackground(userRecord, password);
+        }
+        return userRecord.toUser();
+    }
+
+    /**
+     * Gets a validated User, as {@link #getValidatedUser(String, String)} does, unless the username is locked out or
+     * the source is rate limited by the login throttle, in which case the attempt is rejected before any hash is
+     * derived. Failed attempts are recorded against both the username and the source, and a successful attempt
+     * forgives the username's failures.
+     *
+     * @param username The username of the User to get.
+     * @param password The password of the User to get.
+     * @param source   The address from which the login attempt originates.
+     * @return The validated User with the given username and password, or null if the credentials are invalid or the
+     * attempt was throttled.
+     */
+    public User getValidatedUser(String username, String password, InetAddress source) {
+        if (!loginThrottle.isAllowed(username, source)) {
+            System.err.println("Too many failed login attempts; please try again later");
+            auditLog.record(AuditLog.Event.AUTHENTICATION, AuditLog.Outcome.THROTTLED, username, null, source);
+            return null; // Shed before hashing
+        }
+        User user = audit(username, validateCredentials(username, password), source);
+        if (user == null) {
+            loginThrottle.recordFailure(username, source);
+        } else {
+            loginThrottle.recordSuccess(username);
+        }
+        return user;
+    }
+
+    /**
+     * Records the outcome of a login attempt in the audit log.
+     *
+     * @param username The username of the attempt.
+     * @param user     The validated User, or null if the credentials were invalid.
+     * @param source   The address from which the attempt originates, or null if unknown.
+     * @return The given User.
+     */
+    private User audit(String username, User user, InetAddress source) {
+        auditLog.record(AuditLog.Event.AUTHENTICATION, user == null ? AuditLog.Outcome.DENIED : AuditLog.Outcome.GRANTED,
+                username, null, source);
+        return user;
+    }
+
+    /**
+     * Rehashes the given user record with the current hash parameters on the hashing pool, now that the user's
+     * password is known. The upgrade is skipped if the pool is saturated and retried upon the user's next login.
+     *
+     * @param userRecord The user record to rehash.
+     * @param password   The user's verified password.
+     */
+    private void rehashInBackground(CredentialRecord userRecord, String password) {
+        if (!usernamesBeingRehashed.add(userRecord.getUsername())) {
+            return; // An upgrade is already underway
+        }
+        hashingPool.submit(() -> {
+            byte[] salt = new byte[16];
+            SALT_GENERATOR.nextBytes(salt);
+            byte[] saltedHash = getSaltedHash(password, salt, hashParameters);
+            return saltedHash != null && credentialStore.replace(userRecord, userRecord.withSaltedHash(salt, saltedHash, hashParameters));
+        }).whenComplete((rehashed, e) -> usernamesBeingRehashed.remove(userRecord.getUsername()));
+    }
+
+    /**
+     * Asynchronously gets a validated User, hashing the given password on the bounded hashing pool rather than on the
+     * calling thread.
+     *
+     * @param username The username of the User to get.
+     * @param password The password of the User to get.
+     * @return A future completed with the validated User, or with null if the credentials are invalid. The future is
+     * completed exceptionally with a RejectedExecutionException if the hashing pool is saturated.
+     */
+    public CompletableFuture<User> verifyAsync(String username, String password) {
+        return hashingPool.submit(() -> getValidatedUser(username, password));
+    }
+
+    /**
+     * Asynchronously gets a validated User, subject to the login throttle, which is consulted on the calling thread so
+     * that throttled attempts never occupy the hashing pool.
+     *
+     * @param username The username of the User to get.
+     * @param password The password of the User to get.
+     * @param source   The address from which the login attempt originates.
+     * @return A future completed with the validated User, or with null if the credentials are invalid or the attempt
+     * was throttled. The future is completed exceptionally with a RejectedExecutionException if the hashing pool is
+     * saturated.
+     */
+    public CompletableFuture<User> verifyAsync(String username, String password, InetAddress source) {
+        if (!loginThrottle.isAllowed(username, source)) {
+            auditLog.record(AuditLog.Event.AUTHENTICATION, AuditLog.Outcome.THROTTLED, username, null, source);
+            return CompletableFuture.completedFuture(null);
+        }
+        return hashingPool.submit(() -> getValidatedUser(username, password, source));
+    }
+
+    /**
+     * Gets the hashing pool on which asynchronous verifications run, e.g., to report its queue depth and wait times.
+     *
+     * @return The hashing pool.
+     */
+    public HashingPool getHashingPool() { return hashingPool; }
+
+    /**
+     * Gets the login throttle consulted by the login methods that take a source address.
+     *
+     * @return The login throttle.
+     */
+    public LoginThrottle getLoginThrottle() { return loginThrottle; }
+
+    /**
+     * Gets the audit log in which authentication decisions are recorded, e.g., to report its drop and backpressure
+     * counts.
+     *
+     * @return The audit log.
+     */
+    public AuditLog getAuditLog() { return auditLog; }
+
+    /**
+     * Gets the number of decoy verifications performed for unknown usernames, e.g., to gauge a username enumeration
+     * attack.
+     *
+     * @return The number of decoy verifications.
+     */
+    public long getDecoyVerificationCount() { return decoyVerifications.sum(); }
+
+    /**
+     * Verifies the given password against the decoy salted hash, deriving it from the decoy salt with the hash
+     * parameters of the last record verified against, or the current hash parameters before any has been, so that the
+     * decoy costs what verifying an enrolled user's password currently does, even in a store whose records have not
+     * yet been upgraded upon login. Where records carry several sets of parameters, the decoy tracks whichever were
+     * verified last, and so approximates, rather than matches, the cost of any one record. The derivation runs wherever
+     * a real one would, i.e., on the calling thread, or on the hashing pool for asynchronous verifications, and is
+     * subject to the same login throttle, so that decoys are budgeted and shed exactly as real verifications are.
+     *
+     * @param password The password to verify.
+     */
+    private void verifyDecoy(String password) {
+        decoyVerifications.increment();
+        HashParameters decoyHashParameters = this.decoyHashParameters;
+        byte[] decoySaltedHash = this.decoySaltedHash;
+        if (decoySaltedHash.length != decoyHashParameters.getKeyLengthBytes()) {
+            decoySaltedHash = new byte[decoyHashParameters.getKeyLengthBytes()];
+            SALT_GENERATOR.nextBytes(decoySaltedHash);
+            this.decoySaltedHash = decoySaltedHash;
+        }
+        try {
+            Pbkdf2Engine.forCurrentThread(decoyHashParameters.getMacAlgorithm())
+                    .verify(password, decoySalt, decoyHashParameters.getIterations(), decoySaltedHash);
+        } catch (GeneralSecurityException e) {
             e.printStackTrace();
-            return null;
         }
     }
 
     /**
-     * Returns a salted hash of the given password utilizing the given salt.
+     * Returns a salted hash of the given password utilizing the given salt, derived with the given hash parameters on
+     * the calling thread's reusable PBKDF2 engine.
      * Adapted from <a href="https://www.baeldung.com/java-password-hashing">...</a>
      *
-     * @param password The password to hash.
-     * @param salt     A byte array utilized to salt the hash of the given password.
+     * @param password       The password to hash.
+     * @param salt           A byte array utilized to salt the hash of the given password.
+     * @param hashParameters The PBKDF2 algorithm, iteration count, and key length with which to hash.
      * @return The salted hash of the given password.
      */
-    private String getSaltedHash(String password, byte[] salt) {
-        String saltedHashStr;
+    private byte[] getSaltedHash(String password, byte[] salt, HashParameters hashParameters) {
+        char[] passwordChars = password.toCharArray();
         try {
-            KeySpec keySpec = new PBEKeySpec(password.toCharArray(), salt, 65536, 256);
-            SecretKeyFactory secretKeyFactory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
-            byte[] saltedHash = secretKeyFactory.generateSecret(keySpec).getEncoded();
-            saltedHashStr = Base64.getEncoder().encodeToString(saltedHash);
-            return saltedHashStr;
-        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+            byte[] saltedHash = new byte[hashParameters.getKeyLengthBytes()];
+            Pbkdf2Engine.forCurrentThread(hashParameters.getMacAlgorithm())
+                    .derive(passwordChars, salt, hashParameters.getIterations(), saltedHash, saltedHash.length);
+            return saltedHash;
+        } catch (GeneralSecurityException e) {
             e.printStackTrace();
             return null;
+        } finally {
+            Arrays.fill(passwordChars, '\0'); // Zero the password's key material
         }
     }
 
     /**
-     * A proactive password checker for ensuring that all passwords adhere to the password policy.
+     * Gets the compiled password policy against which proactive password checking is performed.
+     *
+     * @return The password policy.
+     */
+    public PasswordPolicy getPasswordPolicy() { return passwordPolicy; }
+
+    /**
+     * Gets the parameters with which new hashes are derived and outdated hashes are upgraded upon login.
+     *
+     * @return The current hash parameters.
+     */
+    public HashParameters getHashParameters() { return hashParameters; }
+
+    /**
+     * A proactive password checker for ensuring that all passwords adhere to the password policy, reporting any
+     * violations to the console.
      *
      * @param username The username of the user whose password is to be checked.
      * @param password The password to check.
      * @return True if the given password adheres to the password policy, false otherwise.
      */
     public boolean checkPassword(String username, String password) {
-
-        // Ensure the password is 8 to 12 characters long, inclusive
-        if (password.length() < 8 || password.length() > 12) {
-            System.err.println("Your password must be 8 to 12 characters long, inclusive");
-            return false;
+        int violations = getPasswordViolations(username, password);
+        for (String message : passwordPolicy.describe(violations)) {
+            System.err.println(message);
         }
+        return violations == 0; // The password is acceptable if it violates no rule
+    }
 
-        /* Ensure the password contains at least one upper-case letter, one lower-case letter, one numerical digit, and
-         * one special character from the set {!, @, #, $, %, ?, *}, thereby prohibiting numerical date (e.g., 31-10-2022),
-         * license plate number (as they are exclusively upper case and/or numerical), and telephone number formats */
-        boolean hasUppercase = false;
-        boolean hasLowercase = false;
-        boolean hasDigit = false;
-        boolean hasSpecialChar = false;
-        char[] specialChars = {'!', '@', '#', '$', '%', '?', '*'};
-        for (int i = 0; i < password.length(); ++i) {
-            if (Character.isUpperCase(password.charAt(i))) {
-                hasUppercase = true;
-            }
-            if (Character.isLowerCase(password.charAt(i))) {
-                hasLowercase = true;
-            }
-            if (Character.isDigit(password.charAt(i))) {
-                hasDigit = true;
-            }
-            for (char c : specialChars) {
-                if (password.charAt(i) == c) {
-                    hasSpecialChar = true;
-                    break;
-                }
-            }
-            if (i == password.length() - 1) {
-                if (!hasUppercase || !hasLowercase || !hasDigit || !hasSpecialChar) {
-                    System.err.println("Your password must contain at least one upper-case letter, one lower-case letter, " +
-                            "one numerical digit, and one special character from the set {!, @, #, $, %, ?, *}");
-                    return false;
-                }
-            }
-        }
+    /**
+     * Checks the given password against the password policy, the prohibited passwords, and the breached password
+     * filter, without reporting the violations, e.g., for bulk enrolment.
+     *
+     * @param username The username of the user whose password is to be checked.
+     * @param password The password to check.
+     * @return A bitmask of the violated {@link PasswordPolicy} rules, which is 0 if the password is acceptable.
+     */
+    public int getPasswordViolations(String username, String password) {
+        int violations = passwordPolicy.check(username, password);
 
-        // Ensure the password is not in the list of prohibited (e.g., common weak) passwords
+        // Ensure the password is not in the set of prohibited (e.g., common weak) passwords
         if (prohibitedPasswords.contains(password)) {
-            System.err.println("Your password is too weak");
-            return false;
+            violations |= PasswordPolicy.PROHIBITED;
         }
 
-        // Ensure the username and password are unequal
-        if (password.equals(username)) {
-            System.err.println("Your password must be different from your username");
-            return false;
+        // Ensure the password has not appeared in a known breach
+        if (breachedPasswords != null && breachedPasswords.mightContain(password)) {
+            violations |= PasswordPolicy.BREACHED;
         }
 
-        return true; // The password is acceptable
+        return violations;
+    }
+
+    /**
+     * Validates the given username, which must be nonempty and must not contain the ":" that delimits the fields of a
+     * user record, lest it inject further fields, e.g., ABAC attributes or hash parameters, nor the "," that delimits
+     * the fields of a bulk enrolment row, so that interactive and bulk enrolment accept the same usernames.
+     *
+     * @param username The username to validate.
+     * @return True if the given username is valid, false otherwise.
+     */
+    public boolean validateUsername(String username) {
+        return !username.isEmpty() && !username.contains(":") && !username.contains(",");
+    }
+
+    /**
+     * Validates the given contact detail, i.e., a name, phone number, or email address, which must be nonempty and must
+     * not contain the ":" that delimits the fields of a user record, nor the "," that delimits its contact details.
+     *
+     * @param contactDetail The contact detail to validate.
+     * @return True if the given contact detail is valid, false otherwise.
+     */
+    public boolean validateContactDetail(String contactDetail) {
+        return !contactDetail.isEmpty() && !contactDetail.contains(":") && !contactDetail.contains(",");
     }
 
     /**
@@ -228,12 +589,43 @@ public class PasswordManager {
     }
 
     /**
-     * Adds the given passwords to the list of prohibited passwords.
+     * Adds the given passwords to the set of prohibited passwords.
      *
-     * @param passwords An array of passwords to add to the list of prohibited passwords.
+     * @param passwords An array of passwords to add to the set of prohibited passwords.
      */
     public void addProhibitedPasswords(String[] passwords) {
         Collections.addAll(prohibitedPasswords, passwords);
     }
 
+    /**
+     * Verifies a password against the salted hash of a user record, deriving the recreated hash into the calling
+     * thread's reusable buffer rather than allocating it, and comparing the two in constant time. Records the hash
+     * parameters of the record, if any, verified against.
+     */
+    private static class PasswordVerifier implements CredentialStore.CredentialVerifier {
+
+        private final String password;
+        private HashParameters userHashParameters; // Null unless a user is enrolled under the username
+
+        PasswordVerifier(String password) {
+            this.password = password;
+        }
+
+        @Override
+        public boolean verify(HashParameters userHashParameters, ByteBuffer salt, ByteBuffer saltedHash) {
+            this.userHashParameters = userHashParameters;
+            if (saltedHash.remaining() != userHashParameters.getKeyLengthBytes()) {
+                return false; // A corrupt record, whose hash no password recreates
+            }
+            try {
+                return Pbkdf2Engine.forCurrentThread(userHashParameters.getMacAlgorithm())
+                        .verify(password, salt, userHashParameters.getIterations(), saltedHash);
+            } catch (GeneralSecurityException e) {
+                e.printStackTrace();
+                return false;
+            }
+        }
+
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,177 @@
+package main.java.com.finvest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compiled proactive password policy, which checks a password in a single pass over its characters, classifying
+ * each through a lookup table, and reports every violation at once as a bitmask without allocating. Describing the
+ * violations, e.g., to the user, is a separate step, so that bulk checks need not format messages they discard.
+ *
+ * @author Paul Roode
+ */
+public class PasswordPolicy {
+
+    // Character classes
+    public final static int UPPERCASE = 1;
+    public final static int LOWERCASE = 1 << 1;
+    public final static int DIGIT = 1 << 2;
+    public final static int SPECIAL = 1 << 3;
+    public final static int ALL_CLASSES = UPPERCASE | LOWERCASE | DIGIT | SPECIAL;
+
+    // Violations
+    public final static int TOO_SHORT = 1;
+    public final static int TOO_LONG = 1 << 1;
+    private final static int MISSING_CLASS_SHIFT = 2;
+    public final static int MISSING_UPPERCASE = UPPERCASE << MISSING_CLASS_SHIFT;
+    public final static int MISSING_LOWERCASE = LOWERCASE << MISSING_CLASS_SHIFT;
+    public final static int MISSING_DIGIT = DIGIT << MISSING_CLASS_SHIFT;
+    public final static int MISSING_SPECIAL = SPECIAL << MISSING_CLASS_SHIFT;
+    public final static int RESEMBLES_USERNAME = 1 << 6;
+    public final static int PROHIBITED = 1 << 7; // Reported by the password manager, against its prohibited passwords
+    public final static int BREACHED = 1 << 8; // Reported by the password manager, against its breached password filter
+
+    // The shortest username that a password may not contain, forwards or backwards; shorter usernames must merely differ
+    public final static int USERNAME_MATCH_LENGTH = 3;
+
+    /* The Finvest Holdings policy: 8 to 12 characters, inclusive, with at least one upper-case letter, one lower-case
+     * letter, one numerical digit, and one special character from the set {!, @, #, $, %, ?, *}, thereby prohibiting
+     * numerical date (e.g., 31-10-2022), license plate number (as they are exclusively upper case and/or numerical),
+     * and telephone number formats */
+    public final static PasswordPolicy DEFAULT = new PasswordPolicy(8, 12, ALL_CLASSES, "!@#$%?*", true);
+
+    private final int minLength;
+    private final int maxLength;
+    private final int requiredClasses;
+    private final String specialCharacters;
+    private final boolean isUsernameSimilarityProhibited;
+    private final byte[] asciiClasses = new byte[128]; // The class of each ASCII character
+
+    /**
+     * Compiles a password policy.
+     *
+     * @param minLength                      The minimum password length, inclusive.
+     * @param maxLength                      The maximum password length, inclusive.
+     * @param requiredClasses                The character classes of which a password must contain at least one
+     *                                       character, e.g., UPPERCASE | DIGIT.
+     * @param specialCharacters              The ASCII characters constituting the special character class.
+     * @param isUsernameSimilarityProhibited True if a password may not contain the username, forwards or backwards and
+     *                                       ignoring case, false if it must merely differ from the username.
+     */
+    public PasswordPolicy(int minLength, int maxLength, int requiredClasses, String specialCharacters,
+                          boolean isUsernameSimilarityProhibited) {
+        if (minLength < 0 || maxLength < minLength || (requiredClasses & ~ALL_CLASSES) != 0) {
+            throw new IllegalArgumentException("Invalid password policy");
+        }
+        this.minLength = minLength;
+        this.maxLength = maxLength;
+        this.requiredClasses = requiredClasses;
+        this.specialCharacters = specialCharacters;
+        this.isUsernameSimilarityProhibited = isUsernameSimilarityProhibited;
+        for (char c = 0; c < asciiClasses.length; ++c) {
+            if (Character.isUpperCase(c)) asciiClasses[c] |= UPPERCASE;
+            if (Character.isLowerCase(c)) asciiClasses[c] |= LOWERCASE;
+            if (Character.isDigit(c)) asciiClasses[c] |= DIGIT;
+        }
+        for (int i = 0; i < specialCharacters.length(); ++i) {
+            char c = specialCharacters.charAt(i);
+            if (c >= asciiClasses.length) throw new IllegalArgumentException("Special characters must be ASCII: " + c);
+            asciiClasses[c] |= SPECIAL;
+        }
+    }
+
+    // Getters
+    public int getMinLength() { return minLength; }
+    public int getMaxLength() { return maxLength; }
+    public int getRequiredClasses() { return requiredClasses; }
+
+    /**
+     * Checks the given password against this policy.
+     *
+     * @param username The username of the password's user, or null to skip the username similarity rule.
+     * @param password The password to check.
+     * @return A bitmask of the violated rules, e.g., TOO_SHORT | MISSING_DIGIT, which is 0 if the password complies.
+     */
+    public int check(String username, String password) {
+        int violations = 0;
+        int length = password.length();
+        if (length < minLength) violations |= TOO_SHORT;
+        if (length > maxLength) violations |= TOO_LONG;
+        int presentClasses = 0;
+        for (int i = 0; i < length; ++i) {
+            presentClasses |= classOf(password.charAt(i));
+        }
+        violations |= (requiredClasses & ~presentClasses) << MISSING_CLASS_SHIFT;
+        if (username != null && resemblesUsername(username, password)) violations |= RESEMBLES_USERNAME;
+        return violations;
+    }
+
+    /**
+     * Describes the given violations of this policy, in the order in which they are checked.
+     *
+     * @param violations A bitmask of violated rules.
+     * @return A message describing each violation.
+     */
+    public List<String> describe(int violations) {
+        List<String> messages = new ArrayList<>();
+        if ((violations & (TOO_SHORT | TOO_LONG)) != 0) {
+            messages.add("Your password must be " + minLength + " to " + maxLength + " characters long, inclusive");
+        }
+        int missingClasses = violations >>> MISSING_CLASS_SHIFT & ALL_CLASSES;
+        if (missingClasses != 0) {
+            List<String> requirements = new ArrayList<>();
+            if ((missingClasses & UPPERCASE) != 0) requirements.add("one upper-case letter");
+            if ((missingClasses & LOWERCASE) != 0) requirements.add("one lower-case letter");
+            if ((missingClasses & DIGIT) != 0) requirements.add("one numerical digit");
+            if ((missingClasses & SPECIAL) != 0) {
+                requirements.add("one special character from the set {" + String.join(", ", specialCharacters.split("")) + "}");
+            }
+            String lastRequirement = requirements.remove(requirements.size() - 1);
+            messages.add("Your password must contain at least "
+                    + (requirements.isEmpty() ? "" : String.join(", ", requirements) + (requirements.size() > 1 ? ", and " : " and "))
+                    + lastRequirement);
+        }
+        if ((violations & PROHIBITED) != 0) messages.add("Your password is too weak");
+        if ((violations & BREACHED) != 0) messages.add("Your password has appeared in a data breach");
+        if ((violations & RESEMBLES_USERNAME) != 0) {
+            messages.add(isUsernameSimilarityProhibited
+                    ? "Your password must not contain your username"
+                    : "Your password must be different from your username");
+        }
+        return messages;
+    }
+
+    /**
+     * Classifies the given character, through the lookup table if it is ASCII.
+     */
+    private int classOf(char c) {
+        if (c < asciiClasses.length) return asciiClasses[c];
+        return (Character.isUpperCase(c) ? UPPERCASE : 0)
+                | (Character.isLowerCase(c) ? LOWERCASE : 0)
+                | (Character.isDigit(c) ? DIGIT : 0);
+    }
+
+    /**
+     * Determines whether the given password resembles the given username under this policy.
+     */
+    private boolean resemblesUsername(String username, String password) {
+        if (!isUsernameSimilarityProhibited || username.length() < USERNAME_MATCH_LENGTH) {
+            return password.equals(username);
+        }
+        int usernameLength = username.length();
+        for (int start = 0; start + usernameLength <= password.length(); ++start) {
+            if (password.regionMatches(true, start, username, 0, usernameLength)) return true;
+            boolean matchesReversed = true;
+            for (int i = 0; i < usernameLength && matchesReversed; ++i) {
+                matchesReversed = equalsIgnoreCase(password.charAt(start + i), username.charAt(usernameLength - 1 - i));
+            }
+            if (matchesReversed) return true;
+        }
+        return false;
+    }
+
+    private static boolean equalsIgnoreCase(char a, char b) {
+        return a == b || Character.toLowerCase(a) == Character.toLowerCase(b) || Character.toUpperCase(a) == Character.toUpperCase(b);
+    }
+
+}
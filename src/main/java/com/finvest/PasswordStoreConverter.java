@@ -0,0 +1,78 @@
+package main.java.com.finvest;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Converts the password store between the passwd.txt text format and the memory-mapped binary format read by
+ * {@link MappedCredentialStore}, so that operators can migrate large stores in either direction.
+ * <p>
+ * Usage: {@code PasswordStoreConverter to-binary passwd.txt passwd.bin} or
+ * {@code PasswordStoreConverter to-text passwd.bin passwd.txt}
+ *
+ * @author Paul Roode
+ */
+public class PasswordStoreConverter {
+
+    public static void main(String[] argv) {
+        if (argv.length != 3 || !(argv[0].equals("to-binary") || argv[0].equals("to-text"))) {
+            System.err.println("Usage: PasswordStoreConverter (to-binary | to-text) <source> <destination>");
+            System.exit(1);
+        }
+        try {
+            int converted = argv[0].equals("to-binary")
+                    ? toBinary(Path.of(argv[1]), Path.of(argv[2]))
+                    : toText(Path.of(argv[1]), Path.of(argv[2]));
+            System.out.println("Converted " + converted + " user records from " + argv[1] + " to " + argv[2]);
+        } catch (IOException e) {
+            System.err.println("Unable to convert " + argv[1]);
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Converts the live user records in a passwd.txt file to a binary password file.
+     *
+     * @param source      The passwd.txt file to convert.
+     * @param destination The binary password file to write.
+     * @return The number of converted user records.
+     * @throws IOException If the source cannot be read, or the destination cannot be written.
+     */
+    public static int toBinary(Path source, Path destination) throws IOException {
+        List<CredentialRecord> records = TextCredentialStore.readLiveRecords(source); // Replaying updates and removals
+        MappedCredentialStore.write(records, destination);
+        return records.size();
+    }
+
+    /**
+     * Converts a binary password file to a passwd.txt file.
+     *
+     * @param source      The binary password file to convert.
+     * @param destination The passwd.txt file to write.
+     * @return The number of converted user records.
+     * @throws IOException If the source cannot be read, or the destination cannot be written.
+     */
+    public static int toText(Path source, Path destination) throws IOException {
+        int[] converted = {0};
+        try (BufferedWriter writer = Files.newBufferedWriter(destination, StandardCharsets.UTF_8)) {
+            new MappedCredentialStore(source).forEach(record -> {
+                try {
+                    writer.append(record.format()).append("\n");
+                    ++converted[0];
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return converted[0];
+    }
+
+}
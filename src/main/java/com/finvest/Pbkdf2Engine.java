@@ -0,0 +1,307 @@
+package main.java.com.finvest;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A PBKDF2 (RFC 8018) key derivation engine implemented directly over a reusable HMAC instance with preallocated block
+ * buffers, producing output identical to that of the JCE's PBKDF2WithHmac* SecretKeyFactory algorithms, i.e., over the
+ * UTF-8 encoding of the password.
+ * <p>
+ * Engines are not thread-safe; each thread obtains its own through {@link #forCurrentThread(String)}, so that the
+ * provider lookup and buffer allocation happen once per thread rather than once per derivation. The HMAC is keyed with
+ * a reusable key whose backing array the engine owns and hands over without a copy, and which is zeroed as soon as the
+ * HMAC is keyed; it is reallocated only when the length of the encoded password changes. Thereafter the password
+ * survives only in the HMAC's keyed state, which is overwritten by re-keying the HMAC after every derivation, when the
+ * intermediate blocks are zeroed too. Verification derives into a reusable buffer and compares it to the expected key
+ * in constant time, so that verifying a password neither allocates nor reveals, through its timing, how much of a
+ * guessed key matches. The salt and expected key may also be given as buffers, e.g., slices of a memory-mapped store,
+ * which are read in place.
+ *
+ * @author Paul Roode
+ */
+public class Pbkdf2Engine {
+
+    private final static ThreadLocal<Map<String, Pbkdf2Engine>> ENGINES = ThreadLocal.withInitial(HashMap::new);
+
+    private final Mac mac;
+    private final int macLength;
+    private final SecretKeySpec clearKey; // Overwrites the password-derived HMAC state after each derivation
+    private final PasswordKey passwordKey; // Keys the HMAC with the password, without the copy a SecretKeySpec makes
+
+    // Preallocated buffers
+    private byte[] passwordBytes = new byte[64];
+    private byte[] derivedKeyBuffer = new byte[64];
+    private byte[] saltBuffer = new byte[16];
+    private final byte[] blockIndex = new byte[4];
+    private final byte[] u;
+    private final byte[] t;
+
+    /**
+     * Constructs a PBKDF2 engine over the given HMAC algorithm.
+     *
+     * @param macAlgorithm The HMAC algorithm, e.g., HmacSHA1 or HmacSHA256.
+     * @throws GeneralSecurityException If the HMAC algorithm is unavailable.
+     */
+    public Pbkdf2Engine(String macAlgorithm) throws GeneralSecurityException {
+        mac = Mac.getInstance(macAlgorithm);
+        macLength = mac.getMacLength();
+        clearKey = new SecretKeySpec(new byte[]{0}, macAlgorithm);
+        passwordKey = new PasswordKey(macAlgorithm);
+        u = new byte[macLength];
+        t = new byte[macLength];
+    }
+
+    /**
+     * Gets the calling thread's engine for the given HMAC algorithm, constructing it on first use.
+     *
+     * @param macAlgorithm The HMAC algorithm, e.g., HmacSHA1 or HmacSHA256.
+     * @return The calling thread's engine.
+     * @throws GeneralSecurityException If the HMAC algorithm is unavailable.
+     */
+    public static Pbkdf2Engine forCurrentThread(String macAlgorithm) throws GeneralSecurityException {
+        Map<String, Pbkdf2Engine> engines = ENGINES.get();
+        Pbkdf2Engine engine = engines.get(macAlgorithm);
+        if (engine == null) {
+            engine = new Pbkdf2Engine(macAlgorithm);
+            engines.put(macAlgorithm, engine);
+        }
+        return engine;
+    }
+
+    /**
+     * Derives a key from the given password and salt into the given buffer.
+     *
+     * @param password   The password from which to derive the key. It is not modified; callers should zero it.
+     * @param salt       The salt.
+     * @param iterations The iteration count.
+     * @param derivedKey The buffer into which to write the derived key.
+     * @param keyLength  The length of the derived key in bytes, at most the length of the buffer.
+     * @throws GeneralSecurityException If the derivation fails.
+     */
+    public void derive(char[] password, byte[] salt, int iterations, byte[] derivedKey, int keyLength) throws GeneralSecurityException {
+        derive(CharBuffer.wrap(password), salt, salt.length, iterations, derivedKey, keyLength);
+    }
+
+    /**
+     * Verifies the given password by deriving a key from it and the given salt into a reusable buffer, and comparing
+     * that key to the expected one in constant time.
+     *
+     * @param password    The password to verify.
+     * @param salt        The salt.
+     * @param iterations  The iteration count.
+     * @param expectedKey The key the password must derive, e.g., a stored salted hash.
+     * @return True if the password derives the expected key, false otherwise.
+     * @throws GeneralSecurityException If the derivation fails.
+     */
+    public boolean verify(CharSequence password, byte[] salt, int iterations, byte[] expectedKey) throws GeneralSecurityException {
+        if (derivedKeyBuffer.length < expectedKey.length) {
+            derivedKeyBuffer = new byte[expectedKey.length];
+        }
+        try {
+            derive(password, salt, salt.length, iterations, derivedKeyBuffer, expectedKey.length);
+            return isEqual(derivedKeyBuffer, expectedKey);
+        } finally {
+            Arrays.fill(derivedKeyBuffer, (byte) 0);
+        }
+    }
+
+    /**
+     * Verifies the given password as {@link #verify(CharSequence, byte[], int, byte[])} does, reading the salt and
+     * expected key from the remaining bytes of the given buffers in place, without moving their positions.
+     *
+     * @param password    The password to verify.
+     * @param salt        The salt.
+     * @param iterations  The iteration count.
+     * @param expectedKey The key the password must derive, e.g., a stored salted hash.
+     * @return True if the password derives the expected key, false otherwise.
+     * @throws GeneralSecurityException If the derivation fails.
+     */
+    public boolean verify(CharSequence password, ByteBuffer salt, int iterations, ByteBuffer expectedKey) throws GeneralSecurityException {
+        int saltLength = salt.remaining();
+        int keyLength = expectedKey.remaining();
+        if (saltBuffer.length < saltLength) {
+            saltBuffer = new byte[saltLength];
+        }
+        if (derivedKeyBuffer.length < keyLength) {
+            derivedKeyBuffer = new byte[keyLength];
+        }
+        salt.get(salt.position(), saltBuffer, 0, saltLength);
+        try {
+            derive(password, saltBuffer, saltLength, iterations, derivedKeyBuffer, keyLength);
+            int difference = 0;
+            for (int i = 0; i < keyLength; ++i) {
+                difference |= derivedKeyBuffer[i] ^ expectedKey.get(expectedKey.position() + i);
+            }
+            return difference == 0;
+        } finally {
+            Arrays.fill(derivedKeyBuffer, (byte) 0);
+        }
+    }
+
+    /**
+     * Compares the leading bytes of the given derived key to the given expected key in time independent of their
+     * contents, i.e., without returning early at the first differing byte, as MessageDigest.isEqual does, but without
+     * requiring the derived key to fill its buffer.
+     *
+     * @param derivedKey  The buffer holding the derived key, at least as long as the expected key.
+     * @param expectedKey The expected key.
+     * @return True if the first expectedKey.length bytes of the derived key equal the expected key, false otherwise.
+     */
+    public static boolean isEqual(byte[] derivedKey, byte[] expectedKey) {
+        int difference = 0;
+        for (int i = 0; i < expectedKey.length; ++i) {
+            difference |= derivedKey[i] ^ expectedKey[i];
+        }
+        return difference == 0;
+    }
+
+    private void derive(CharSequence password, byte[] salt, int saltLength, int iterations, byte[] derivedKey, int keyLength) throws GeneralSecurityException {
+        int passwordLength = encodeUtf8(password);
+        try {
+            if (passwordLength == 0) { // HMAC keys cannot be empty, so defer to the JCE, whose PBKDF2 permits them
+                deriveWithKeyFactory(new char[0], Arrays.copyOf(salt, saltLength), iterations, derivedKey, keyLength);
+                return;
+            }
+            passwordKey.set(passwordBytes, passwordLength);
+            Arrays.fill(passwordBytes, 0, passwordLength, (byte) 0);
+            try {
+                mac.init(passwordKey);
+            } finally {
+                passwordKey.clear();
+            }
+            int blocks = (keyLength + macLength - 1) / macLength;
+            for (int block = 1; block <= blocks; ++block) {
+
+                // U_1 = PRF(P, S || INT(block))
+                blockIndex[0] = (byte) (block >>> 24);
+                blockIndex[1] = (byte) (block >>> 16);
+                blockIndex[2] = (byte) (block >>> 8);
+                blockIndex[3] = (byte) block;
+                mac.update(salt, 0, saltLength);
+                mac.update(blockIndex);
+                mac.doFinal(u, 0);
+                System.arraycopy(u, 0, t, 0, macLength);
+
+                // T = U_1 ^ U_2 ^ ... ^ U_c, where U_j = PRF(P, U_{j-1})
+                for (int i = 1; i < iterations; ++i) {
+                    mac.update(u);
+                    mac.doFinal(u, 0);
+                    for (int j = 0; j < macLength; ++j) {
+                        t[j] ^= u[j];
+                    }
+                }
+                int offset = (block - 1) * macLength;
+                System.arraycopy(t, 0, derivedKey, offset, Math.min(macLength, keyLength - offset));
+            }
+        } finally {
+            Arrays.fill(passwordBytes, 0, passwordLength, (byte) 0);
+            Arrays.fill(u, (byte) 0);
+            Arrays.fill(t, (byte) 0);
+            try {
+                mac.init(clearKey);
+            } catch (InvalidKeyException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void deriveWithKeyFactory(char[] password, byte[] salt, int iterations, byte[] derivedKey, int keyLength) throws GeneralSecurityException {
+        PBEKeySpec keySpec = new PBEKeySpec(password, salt, iterations, keyLength * 8);
+        try {
+            byte[] key = SecretKeyFactory.getInstance("PBKDF2With" + mac.getAlgorithm()).generateSecret(keySpec).getEncoded();
+            System.arraycopy(key, 0, derivedKey, 0, keyLength);
+            Arrays.fill(key, (byte) 0);
+        } finally {
+            keySpec.clearPassword();
+        }
+    }
+
+    /**
+     * Encodes the given password as UTF-8 into the reusable password buffer, replacing unpaired surrogates with '?'
+     * as the JCE does.
+     *
+     * @return The number of encoded bytes.
+     */
+    private int encodeUtf8(CharSequence password) {
+        if (passwordBytes.length < password.length() * 3) {
+            Arrays.fill(passwordBytes, (byte) 0);
+            passwordBytes = new byte[password.length() * 3];
+        }
+        int length = 0;
+        for (int i = 0; i < password.length(); ++i) {
+            char c = password.charAt(i);
+            if (c < 0x80) {
+                passwordBytes[length++] = (byte) c;
+            } else if (c < 0x800) {
+                passwordBytes[length++] = (byte) (0xC0 | (c >> 6));
+                passwordBytes[length++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < password.length() && Character.isLowSurrogate(password.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, password.charAt(++i));
+                passwordBytes[length++] = (byte) (0xF0 | (codePoint >> 18));
+                passwordBytes[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                passwordBytes[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                passwordBytes[length++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                passwordBytes[length++] = '?';
+            } else {
+                passwordBytes[length++] = (byte) (0xE0 | (c >> 12));
+                passwordBytes[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                passwordBytes[length++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return length;
+    }
+
+    /**
+     * A raw HMAC key over an array owned by the engine. Its encoding is returned as is rather than copied, so that the
+     * engine can zero the only copy of the password bytes once the HMAC has read them.
+     */
+    private static class PasswordKey implements SecretKey {
+
+        private final static long serialVersionUID = 1L;
+
+        private final String algorithm;
+        private byte[] encoded = new byte[0];
+
+        PasswordKey(String algorithm) {
+            this.algorithm = algorithm;
+        }
+
+        /**
+         * Copies the first length bytes of the given password bytes into the key, reallocating it only if its length
+         * differs.
+         */
+        void set(byte[] passwordBytes, int length) {
+            if (encoded.length != length) {
+                encoded = new byte[length];
+            }
+            System.arraycopy(passwordBytes, 0, encoded, 0, length);
+        }
+
+        void clear() {
+            Arrays.fill(encoded, (byte) 0);
+        }
+
+        @Override
+        public String getAlgorithm() { return algorithm; }
+
+        @Override
+        public String getFormat() { return "RAW"; }
+
+        @Override
+        public byte[] getEncoded() { return encoded; }
+
+    }
+
+}
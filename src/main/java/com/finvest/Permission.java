@@ -0,0 +1,81 @@
+package main.java.com.finvest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An enumeration of the permissions in the Finvest Holdings access control policy, each interned to a dense integer
+ * ID (its ordinal) so that a role's permissions can be compiled into bitmasks.
+ *
+ * @author Paul Roode
+ */
+public enum Permission {
+
+    // R/W permissions
+    ACCOUNT_BALANCE                               ( AccessControlPolicy.ACCOUNT_BALANCE                               ),
+    CLIENT_INFORMATION                            ( AccessControlPolicy.CLIENT_INFORMATION                            ),
+    DERIVATIVES_TRADING                           ( AccessControlPolicy.DERIVATIVES_TRADING                           ),
+    FINANCIAL_ADVISOR_CONTACT_DETAILS             ( AccessControlPolicy.FINANCIAL_ADVISOR_CONTACT_DETAILS             ),
+    FINANCIAL_PLANNER_CONTACT_DETAILS             ( AccessControlPolicy.FINANCIAL_PLANNER_CONTACT_DETAILS             ),
+    INTEREST_INSTRUMENTS                          ( AccessControlPolicy.INTEREST_INSTRUMENTS                          ),
+    INVESTMENT_ANALYST_CONTACT_DETAILS            ( AccessControlPolicy.INVESTMENT_ANALYST_CONTACT_DETAILS            ),
+    INVESTMENT_PORTFOLIO                          ( AccessControlPolicy.INVESTMENT_PORTFOLIO                          ),
+    MONEY_MARKET_INSTRUMENTS                      ( AccessControlPolicy.MONEY_MARKET_INSTRUMENTS                      ),
+    PRIVATE_CONSUMER_INSTRUMENTS                  ( AccessControlPolicy.PRIVATE_CONSUMER_INSTRUMENTS                  ),
+
+    // Special permissions
+    REQUEST_TECHNICAL_SUPPORT                     ( AccessControlPolicy.REQUEST_TECHNICAL_SUPPORT                     ),
+    REQUEST_CLIENT_ACCOUNT_ACCESS                 ( AccessControlPolicy.REQUEST_CLIENT_ACCOUNT_ACCESS                 ),
+    VALIDATE_MODIFICATION_OF_INVESTMENT_PORTFOLIO ( AccessControlPolicy.VALIDATE_MODIFICATION_OF_INVESTMENT_PORTFOLIO );
+
+    private final static Map<String, Permission> PERMISSIONS_BY_LABEL = new HashMap<>();
+    static {
+        for (Permission permission : values()) {
+            PERMISSIONS_BY_LABEL.put(permission.label, permission);
+        }
+    }
+
+    private final String label;
+    private final long bit;
+
+    // Constructors
+    Permission(String label) {
+        this.label = label;
+        this.bit = 1L << ordinal();
+    }
+
+    // Getters
+    public int getId() { return ordinal(); }
+    public long getBit() { return bit; }
+
+    /**
+     * Gets the permission with the given label, e.g., "Account Balance".
+     *
+     * @param label The label of the permission to get.
+     * @return The permission with the given label, or null if there is none.
+     */
+    public static Permission getPermission(String label) {
+        return label == null ? null : PERMISSIONS_BY_LABEL.get(label);
+    }
+
+    /**
+     * Compiles the permissions with the given labels into a bitmask, ignoring unknown labels.
+     *
+     * @param labels The labels of the permissions to compile.
+     * @return A bitmask with the bit of each labelled permission set.
+     */
+    public static long toMask(String[] labels) {
+        long mask = 0L;
+        for (String label : labels) {
+            Permission permission = getPermission(label);
+            if (permission != null) mask |= permission.bit;
+        }
+        return mask;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+
+}
@@ -0,0 +1,106 @@
+package main.java.com.finvest;
+
+import java.util.Arrays;
+
+/**
+ * An immutable, expiring set of permissions granted to a single user session on top of the permissions of its shared
+ * role. Grants produce a new overlay rather than modifying an existing one, so that checks against the current overlay
+ * need no locking. An overlay holds at most one expiry per permission and category, bounding its footprint regardless of
+ * how many grants are made.
+ *
+ * @author Paul Roode
+ */
+public class PermissionOverlay {
+
+    public final static PermissionOverlay EMPTY = new PermissionOverlay(0L, 0L, 0L, new long[3 * Permission.values().length]);
+
+    // Permission categories, which index the expiry table
+    private final static int READ = 0;
+    private final static int WRITE = 1;
+    private final static int SPECIAL = 2;
+    private final static int PERMISSION_COUNT = Permission.values().length;
+
+    private final long readMask;
+    private final long writeMask;
+    private final long specialMask;
+    private final long[] expiries; // System.nanoTime() deadline of each granted permission, by category and permission ID
+
+    private PermissionOverlay(long readMask, long writeMask, long specialMask, long[] expiries) {
+        this.readMask = readMask;
+        this.writeMask = writeMask;
+        this.specialMask = specialMask;
+        this.expiries = expiries;
+    }
+
+    // Methods for checking permissions
+    public boolean grantsRead(Permission permission, long now) { return grants(readMask, READ, permission, now); }
+    public boolean grantsWrite(Permission permission, long now) { return grants(writeMask, WRITE, permission, now); }
+    public boolean grantsSpecialPermission(Permission permission, long now) { return grants(specialMask, SPECIAL, permission, now); }
+
+    /**
+     * Determines whether this overlay currently grants the given action on the given object.
+     *
+     * @param action The action to check.
+     * @param object The object of the action.
+     * @param now    The current System.nanoTime().
+     * @return True if an unexpired grant covers the action, false otherwise.
+     */
+    public boolean grants(Action action, Permission object, long now) {
+        return switch (action) {
+            case READ    -> grantsRead(object, now);
+            case WRITE   -> grantsWrite(object, now);
+            case SPECIAL -> grantsSpecialPermission(object, now);
+        };
+    }
+
+    private boolean grants(long mask, int category, Permission permission, long now) {
+        return permission != null
+                && (mask & permission.getBit()) != 0
+                && now - expiries[category * PERMISSION_COUNT + permission.getId()] < 0;
+    }
+
+    // Methods for granting permissions
+    public PermissionOverlay withReadPermissions(long mask, long expiresAt, long now) { return with(READ, mask, expiresAt, now); }
+    public PermissionOverlay withWritePermissions(long mask, long expiresAt, long now) { return with(WRITE, mask, expiresAt, now); }
+    public PermissionOverlay withSpecialPermissions(long mask, long expiresAt, long now) { return with(SPECIAL, mask, expiresAt, now); }
+
+    /**
+     * Returns a copy of this overlay with the permissions in the given mask granted in the given category until the given
+     * time, and with every expired grant pruned.
+     */
+    private PermissionOverlay with(int category, long mask, long expiresAt, long now) {
+        long[] grantedMasks = {readMask, writeMask, specialMask};
+        long[] grantedExpiries = Arrays.copyOf(expiries, expiries.length);
+        for (Permission permission : Permission.values()) {
+            int slot = category * PERMISSION_COUNT + permission.getId();
+            boolean alreadyGranted = (grantedMasks[category] & permission.getBit()) != 0;
+            if ((mask & permission.getBit()) != 0 && (!alreadyGranted || expiresAt - grantedExpiries[slot] > 0)) {
+                grantedMasks[category] |= permission.getBit();
+                grantedExpiries[slot] = expiresAt;
+            }
+        }
+        for (int c = READ; c <= SPECIAL; ++c) {
+            for (Permission permission : Permission.values()) {
+                if (now - grantedExpiries[c * PERMISSION_COUNT + permission.getId()] >= 0) {
+                    grantedMasks[c] &= ~permission.getBit();
+                }
+            }
+        }
+        return new PermissionOverlay(grantedMasks[READ], grantedMasks[WRITE], grantedMasks[SPECIAL], grantedExpiries);
+    }
+
+    /**
+     * Gets the read permissions currently granted by this overlay.
+     *
+     * @param now The current System.nanoTime().
+     * @return A bitmask of the unexpired read permissions.
+     */
+    public long getReadMask(long now) {
+        long mask = 0L;
+        for (Permission permission : Permission.values()) {
+            if (grantsRead(permission, now)) mask |= permission.getBit();
+        }
+        return mask;
+    }
+
+}
@@ -1,11 +1,11 @@
 package main.java.com.finvest;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 /**
- * Manages role permissions.
+ * An immutable role and its permissions. Alongside the permission labels, each category of permissions is compiled
+ * into a bitmask over the dense permission IDs, so that an authorization check is a single AND. Being immutable, a
+ * role can be shared by every user holding it across threads.
  *
  * @author Paul Roode
  */
@@ -16,20 +16,31 @@ public class Role {
     private final List<String> writePermissions;
     private final List<String> specialPermissions;
 
+    // Compiled permissions
+    private final long readMask;
+    private final long writeMask;
+    private final long specialMask;
+
     /**
-     * Constructs the given role.
+     * Constructs the given role with the given permissions.
      *
-     * @param role The role to construct.
+     * @param role               The role to construct.
+     * @param readPermissions    The role's read permissions.
+     * @param writePermissions   The role's write permissions.
+     * @param specialPermissions The role's special permissions.
      */
-    public Role(RoleEnum role) {
+    public Role(RoleEnum role, String[] readPermissions, String[] writePermissions, String[] specialPermissions) {
 
         // Assign the given role
         this.role = role;
 
         // Initialize permissions
-        readPermissions = new ArrayList<>();
-        writePermissions = new ArrayList<>();
-        specialPermissions = new ArrayList<>();
+        this.readPermissions = List.of(readPermissions);
+        this.writePermissions = List.of(writePermissions);
+        this.specialPermissions = List.of(specialPermissions);
+        readMask = Permission.toMask(readPermissions);
+        writeMask = Permission.toMask(writePermissions);
+        specialMask = Permission.toMask(specialPermissions);
     }
 
     // Getters
@@ -38,10 +49,14 @@ public class Role {
     public List<String> getWritePermissions() { return writePermissions; }
     public List<String> getSpecialPermissions() { return specialPermissions; }
 
-    // Methods for augmenting permissions
-    public void addReadPermissions(String[] readPermissions) { Collections.addAll(this.readPermissions, readPermissions); }
-    public void addWritePermissions(String[] writePermissions) { Collections.addAll(this.writePermissions, writePermissions); }
-    public void addSpecialPermissions(String[] specialPermissions) { Collections.addAll(this.specialPermissions, specialPermissions); }
+    public long getReadMask() { return readMask; }
+    public long getWriteMask() { return writeMask; }
+    public long getSpecialMask() { return specialMask; }
+
+    // Methods for checking permissions
+    public boolean canRead(Permission permission) { return permission != null && (readMask & permission.getBit()) != 0; }
+    public boolean canWrite(Permission permission) { return permission != null && (writeMask & permission.getBit()) != 0; }
+    public boolean hasSpecialPermission(Permission permission) { return permission != null && (specialMask & permission.getBit()) != 0; }
 
     @Override
     public String toString() {
@@ -51,4 +66,4 @@ public class Role {
                 + "\nSpecial permissions: " + specialPermissions.toString().replace("[","").replace("]","");
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,241 @@
+package main.java.com.finvest;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Issues and resolves session tokens, so that a user authenticated once need not rederive their password hash on
+ * every subsequent interaction. Tokens are opaque, unguessable strings of {@link #TOKEN_LENGTH} random bytes, held in a
+ * table sharded by token that resolves a token to its session, and thus to the shared User and role it authenticated,
+ * in constant time.
+ * <p>
+ * A session expires once it has been idle for the idle timeout, or has lasted for the absolute timeout, whichever
+ * comes first; both are measured in minutes on a {@link CoarseClock}, so that resolving a token reads the time without
+ * a system call. Expired sessions are rejected as they are resolved, and are reclaimed by a daemon sweeper that sweeps
+ * a single shard per {@link #SWEEP_INTERVAL}, so that sweeping never stalls the table as a whole.
+ *
+ * @author Paul Roode
+ */
+public class SessionManager {
+
+    public final static int TOKEN_LENGTH = 32; // Bytes
+    public final static int SHARD_COUNT = 16; // A power of two
+    public final static long DEFAULT_IDLE_TIMEOUT_MINUTES = 15;
+    public final static long DEFAULT_ABSOLUTE_TIMEOUT_MINUTES = 8 * 60;
+    public final static Duration SWEEP_INTERVAL = Duration.ofSeconds(60 / SHARD_COUNT); // Each shard is swept about once a minute
+
+    private final static SecureRandom TOKEN_GENERATOR = new SecureRandom();
+
+    private final Shard[] shards;
+    private final CoarseClock clock;
+    private final long idleTimeoutMinutes;
+    private final long absoluteTimeoutMinutes;
+    private final AtomicInteger nextShardToSweep = new AtomicInteger();
+    private final ScheduledExecutorService sweeper;
+
+    /**
+     * Constructs a session manager with the default timeouts on the shared coarse clock.
+     */
+    public SessionManager() {
+        this(CoarseClock.getShared(), DEFAULT_IDLE_TIMEOUT_MINUTES, DEFAULT_ABSOLUTE_TIMEOUT_MINUTES);
+    }
+
+    /**
+     * Constructs a session manager and starts its sweeper.
+     *
+     * @param clock                  The clock against which sessions expire.
+     * @param idleTimeoutMinutes     The number of minutes after its last use that a session expires.
+     * @param absoluteTimeoutMinutes The number of minutes after its creation that a session expires, however active.
+     */
+    public SessionManager(CoarseClock clock, long idleTimeoutMinutes, long absoluteTimeoutMinutes) {
+        if (idleTimeoutMinutes < 1 || absoluteTimeoutMinutes < 1) {
+            throw new IllegalArgumentException("Session timeouts must be at least one minute");
+        }
+        shards = new Shard[SHARD_COUNT];
+        for (int i = 0; i < SHARD_COUNT; ++i) {
+            shards[i] = new Shard();
+        }
+        this.clock = clock;
+        this.idleTimeoutMinutes = idleTimeoutMinutes;
+        this.absoluteTimeoutMinutes = absoluteTimeoutMinutes;
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleAtFixedRate(this::sweep, SWEEP_INTERVAL.toMillis(), SWEEP_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a session for the given authenticated user.
+     *
+     * @param user    The user, as validated by {@link PasswordManager#getValidatedUser}.
+     * @param context The environment of the user's session.
+     * @return The session's token, which the user presents in lieu of their credentials.
+     */
+    public String createSession(User user, AccessContext context) {
+        Session session = new Session(user, context, clock.getEpochMinute());
+        byte[] tokenBytes = new byte[TOKEN_LENGTH];
+        String token;
+        do {
+            TOKEN_GENERATOR.nextBytes(tokenBytes);
+            token = Base64.getUrlEncoder().withoutPadding().encodeToString(tokenBytes);
+        } while (shardOf(token).sessions.putIfAbsent(token, session) != null);
+        return token;
+    }
+
+    /**
+     * Resolves the given token to its session, renewing the session's idle timeout.
+     *
+     * @param token The session token.
+     * @return The session, or null if the token is unknown or its session has expired.
+     */
+    public Session getSession(String token) {
+        if (token == null) return null;
+        Shard shard = shardOf(token);
+        Session session = shard.sessions.get(token);
+        if (session == null) return null;
+        long now = clock.getEpochMinute();
+        if (isExpired(session, now)) {
+            shard.sessions.remove(token, session);
+            return null;
+        }
+        if (session.lastAccessMinute != now) {
+            session.lastAccessMinute = now; // Written at most once a minute, rather than on every resolution
+        }
+        return session;
+    }
+
+    /**
+     * Resolves the given token to the user its session authenticated, renewing the session's idle timeout.
+     *
+     * @param token The session token.
+     * @return The user, or null if the token is unknown or its session has expired.
+     */
+    public User getUser(String token) {
+        Session session = getSession(token);
+        return session == null ? null : session.getUser();
+    }
+
+    /**
+     * Ends the session with the given token, e.g., when its user logs out.
+     *
+     * @param token The session token.
+     * @return True if a session was ended, false if the token is unknown.
+     */
+    public boolean invalidate(String token) {
+        return token != null && shardOf(token).sessions.remove(token) != null;
+    }
+
+    /**
+     * Ends every session of the user with the given username, e.g., when their password is changed or they are
+     * removed. This scans every shard, so it is linear in the number of sessions.
+     *
+     * @param username The user's username.
+     * @return The number of sessions ended.
+     */
+    public int invalidateAll(String username) {
+        int invalidated = 0;
+        for (Shard shard : shards) {
+            for (Iterator<Session> sessions = shard.sessions.values().iterator(); sessions.hasNext(); ) {
+                if (sessions.next().getUser().getUsername().equals(username)) {
+                    sessions.remove();
+                    ++invalidated;
+                }
+            }
+        }
+        return invalidated;
+    }
+
+    /**
+     * Reclaims the expired sessions in the next shard in turn. Resolutions and creations in the other shards proceed
+     * undisturbed, and those in the swept shard contend only on the entries being removed.
+     *
+     * @return The number of sessions reclaimed.
+     */
+    public int sweep() {
+        Shard shard = shards[nextShardToSweep.getAndIncrement() & SHARD_COUNT - 1];
+        long now = clock.getEpochMinute();
+        int reclaimed = 0;
+        for (Iterator<Session> sessions = shard.sessions.values().iterator(); sessions.hasNext(); ) {
+            if (isExpired(sessions.next(), now)) {
+                sessions.remove();
+                ++reclaimed;
+            }
+        }
+        return reclaimed;
+    }
+
+    /**
+     * Stops the sweeper, e.g., when the front-end embedding this session manager shuts down.
+     */
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    // Getters
+    public long getIdleTimeoutMinutes() { return idleTimeoutMinutes; }
+    public long getAbsoluteTimeoutMinutes() { return absoluteTimeoutMinutes; }
+
+    /**
+     * Counts the sessions in the table, including any that have expired but have yet to be reclaimed.
+     *
+     * @return The number of sessions.
+     */
+    public int getSessionCount() {
+        int sessionCount = 0;
+        for (Shard shard : shards) {
+            sessionCount += shard.sessions.size();
+        }
+        return sessionCount;
+    }
+
+    private boolean isExpired(Session session, long now) {
+        return now - session.lastAccessMinute >= idleTimeoutMinutes || now - session.createdMinute >= absoluteTimeoutMinutes;
+    }
+
+    private Shard shardOf(String token) {
+        return shards[token.hashCode() & SHARD_COUNT - 1];
+    }
+
+    /**
+     * A shard of the session table.
+     */
+    private static class Shard {
+        private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * An authenticated user's session.
+     */
+    public static class Session {
+
+        private final User user;
+        private final AccessContext context;
+        private final long createdMinute;
+        private volatile long lastAccessMinute;
+
+        Session(User user, AccessContext context, long createdMinute) {
+            this.user = user;
+            this.context = context;
+            this.createdMinute = createdMinute;
+            this.lastAccessMinute = createdMinute;
+        }
+
+        // Getters
+        public User getUser() { return user; }
+        public AccessContext getContext() { return context; }
+        public long getCreatedMinute() { return createdMinute; }
+        public long getLastAccessMinute() { return lastAccessMinute; }
+
+    }
+
+}
@@ -0,0 +1,792 @@
+package main.java.com.finvest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * A credential store backed by the passwd.txt text file, which is replayed once into an in-memory hash index keyed by
+ * username so that lookups entail no file I/O. Usernames are unique: an enrolment whose username is already enrolled,
+ * or is being modified concurrently, is rejected, and should a legacy file hold several records under one username,
+ * the first is authoritative.
+ * <p>
+ * The file is an append-only log written through a single channel. Each line is an entry: an enrolment, which is a
+ * user record; an update, which is the replacement user record tagged o=update; or a deletion, which is a tombstone
+ * of the form username:o=delete. Each appended entry is terminated by a c field holding the CRC-32C of the rest of its
+ * line, so that an entry torn by a crash is detected and truncated when the store is next opened. Concurrent appends
+ * are coalesced into group commits: while one thread writes and forces a batch under an exclusive file lock, others
+ * queue their entries for the next batch, so that a burst of enrolments costs one force per batch rather than one per
+ * entry.
+ * <p>
+ * Once superseded entries outnumber the live records, a background compactor rewrites the live records into a new
+ * file, copies over the entries appended in the meantime, and atomically moves the new file into place. Lookups are
+ * served from the index throughout, and appends pause only while the tail is copied.
+ * <p>
+ * Since compaction replaces the password file, the file lock is taken not on the password file but on a sidecar lock
+ * file, path.lock, which is never replaced, and which records the generation of the password file, incremented by
+ * every compaction. Having taken the lock, a store reopens its channel if the generation has changed since it opened
+ * it, so that a store in another process never appends to a password file that a compaction has replaced.
+ *
+ * @author Paul Roode
+ */
+public class TextCredentialStore implements CredentialStore {
+
+    public final static int WRITE_BUFFER_SIZE = 1 << 20;
+    public final static int COMPACTION_THRESHOLD = 1024; // The fewest superseded entries worth compacting away
+    private final static String CHECKSUM_FIELD = ":c=";
+    private final static String OPERATION_FIELD = ":o=";
+    private final static String LOCK_FILE_SUFFIX = ".lock";
+
+    // The process locks of the password files opened by this process, by lock file
+    private final static Map<Path, ReentrantLock> PROCESS_LOCKS = new ConcurrentHashMap<>();
+
+    private final String path;
+    private final Map<String, CredentialRecord> index;
+    private final Set<String> reservedUsernames; // The usernames of entries awaiting a commit
+    private final AtomicBoolean isCompacting = new AtomicBoolean();
+    private FileChannel channel; // Appends to the password file; reopened whenever the file is replaced
+    private long channelGeneration = -1; // The generation of the password file the channel has open, or -1 if unknown
+    private FileChannel lockChannel; // Locks the sidecar lock file, which holds the password file's generation
+    private final ReentrantLock processLock; // Excludes the other stores of this process, which file locks do not
+    private volatile long entryCount; // The number of entries in the password file, live or superseded
+
+    // Group commit state, guarded by commitLock
+    private final Object commitLock = new Object();
+    private List<PendingAppend> pendingAppends = new ArrayList<>();
+    private boolean isWriting; // True while a thread holds the write path, either committing a batch or compacting
+
+    /**
+     * Constructs a credential store by replaying the entries in the given password file, after truncating any entry
+     * torn by a crash from its end. The file is replayed and recovered under its exclusive lock, so that a batch being
+     * committed by another store is never mistaken for a torn entry.
+     *
+     * @param path The path of the password file.
+     */
+    public TextCredentialStore(String path) {
+        this.path = path;
+        index = new ConcurrentHashMap<>();
+        reservedUsernames = ConcurrentHashMap.newKeySet();
+        Path lockFile = Path.of(path + LOCK_FILE_SUFFIX).toAbsolutePath().normalize();
+        processLock = PROCESS_LOCKS.computeIfAbsent(lockFile, unused -> new ReentrantLock());
+        try {
+            lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            System.err.println("Unable to open " + lockFile + " file");
+            e.printStackTrace();
+        }
+        FileLock lock;
+        try {
+            lock = lock(); // Also opens the channel
+        } catch (IOException e) {
+            System.err.println("Unable to lock " + path + " file; loading it without recovery");
+            e.printStackTrace();
+            load(false);
+            return;
+        }
+        try {
+            load(true);
+        } finally {
+            unlock(lock);
+        }
+    }
+
+    /**
+     * Replays the password file into the index and, if the file is locked, truncates a torn entry from its end.
+     *
+     * @param isLocked True if the calling thread holds the exclusive lock on the password file, without which a batch
+     *                 being committed could be mistaken for a torn entry, and so the file must not be recovered.
+     */
+    private void load(boolean isLocked) {
+        Path passwd = Path.of(path);
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(passwd);
+        } catch (IOException e) {
+            System.err.println("Unable to read " + path + " file");
+            e.printStackTrace();
+            return;
+        }
+        Map<String, CredentialRecord> live = new LinkedHashMap<>();
+        int validLength = replay(bytes, path, live);
+        index.putAll(live);
+        for (int i = 0; i < validLength; ++i) {
+            if (bytes[i] == '\n') ++entryCount;
+        }
+        boolean isTerminated = validLength == 0 || bytes[validLength - 1] == '\n';
+        if (!isLocked) {
+            return;
+        }
+        try {
+            if (validLength < bytes.length) {
+                try (FileChannel recovery = FileChannel.open(passwd, StandardOpenOption.WRITE)) {
+                    recovery.truncate(validLength);
+                    recovery.force(true);
+                }
+                System.err.println("Truncated a torn user record from the end of " + path);
+            } else if (!isTerminated) { // An intact final entry without its line terminator, to which appends must not run on
+                Files.write(passwd, new byte[]{'\n'}, StandardOpenOption.APPEND);
+                ++entryCount;
+            }
+        } catch (IOException e) {
+            System.err.println("Unable to recover " + path + " file");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads the live user records in the given password file, without modifying it, e.g., to convert it to another
+     * format.
+     *
+     * @param path The path of the password file.
+     * @return The live user records, in enrolment order.
+     * @throws IOException If the file cannot be read.
+     */
+    public static List<CredentialRecord> readLiveRecords(Path path) throws IOException {
+        Map<String, CredentialRecord> live = new LinkedHashMap<>();
+        replay(Files.readAllBytes(path), path.toString(), live);
+        return new ArrayList<>(live.values());
+    }
+
+    /**
+     * Replays the entries in the given password file contents into the given map of live records, which preserves the
+     * order in which the users were enrolled. Replay stops at a torn final entry.
+     *
+     * @param bytes The password file contents.
+     * @param path  The path of the password file, to report malformed entries.
+     * @param live  The map of live records by username into which to replay.
+     * @return The length of the contents up to the end of the last intact entry.
+     */
+    private static int replay(byte[] bytes, String path, Map<String, CredentialRecord> live) {
+        int lineStart = 0;
+        int validLength = 0;
+        boolean hasChecksums = false; // False for files written before entries were checksummed
+        while (lineStart < bytes.length) {
+            int lineEnd = lineStart;
+            while (lineEnd < bytes.length && bytes[lineEnd] != '\n') ++lineEnd;
+            String entry = new String(bytes, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8).stripTrailing();
+            if (!entry.isEmpty()) {
+                int checksumStatus = verifyChecksum(entry);
+                String content = checksumStatus == 0 ? entry : entry.substring(0, entry.lastIndexOf(CHECKSUM_FIELD));
+                Operation operation = checksumStatus < 0 ? null : Operation.of(content);
+                CredentialRecord record = operation == null || operation == Operation.DELETE ? null : CredentialRecord.parse(operation.strip(content));
+                boolean isWellFormed = operation == Operation.DELETE || record != null;
+
+                /* An append torn by a crash leaves either an unterminated final line, which is only trusted if its
+                 * checksum verifies or it was written by hand to a legacy file, or a final line that fails its checksum */
+                boolean isTorn = lineEnd == bytes.length
+                        ? !isWellFormed || (checksumStatus == 0 && hasChecksums)
+                        : lineEnd == bytes.length - 1 && checksumStatus < 0;
+                if (isTorn) break;
+                if (!isWellFormed) {
+                    System.err.println("Skipping malformed user record in " + path);
+                } else if (operation == Operation.DELETE) {
+                    live.remove(content.substring(0, content.indexOf(':')));
+                } else if (operation == Operation.UPDATE) {
+                    live.put(record.getUsername(), record);
+                } else if (live.putIfAbsent(record.getUsername(), record) != null) {
+                    System.err.println("Ignoring duplicate user record for " + record.getUsername() + " in " + path);
+                }
+                hasChecksums |= checksumStatus != 0;
+            }
+            lineStart = lineEnd + 1;
+            validLength = Math.min(lineStart, bytes.length);
+        }
+        return validLength;
+    }
+
+    /**
+     * Verifies the checksum of the given entry, if it has one.
+     *
+     * @return 1 if the checksum matches, 0 if the entry has no checksum, or -1 if the checksum does not match.
+     */
+    private static int verifyChecksum(String entry) {
+        int checksumStart = entry.lastIndexOf(CHECKSUM_FIELD);
+        if (checksumStart < 0) return 0;
+        String content = entry.substring(0, checksumStart);
+        return entry.substring(checksumStart + CHECKSUM_FIELD.length()).equals(checksum(content)) ? 1 : -1;
+    }
+
+    /**
+     * Computes the CRC-32C of the UTF-8 encoding of the given text, as eight hexadecimal digits.
+     */
+    private static String checksum(String content) {
+        CRC32C crc = new CRC32C();
+        crc.update(content.getBytes(StandardCharsets.UTF_8));
+        return String.format("%08x", crc.getValue());
+    }
+
+    /**
+     * Encodes the given entry content as a checksummed line of the password file.
+     */
+    private static byte[] encode(String content) {
+        return (content + CHECKSUM_FIELD + checksum(content) + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void openChannel() {
+        try {
+            channel = FileChannel.open(Path.of(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("Unable to open " + path + " file for appending");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Appends to the file now at the password file's path, rather than to the one it replaced.
+     */
+    private void reopenChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        openChannel();
+    }
+
+    /**
+     * Takes the exclusive lock on the password file, first within this process and then across processes, and reopens
+     * the channel should the password file have been replaced by a compaction since the channel opened it.
+     *
+     * @return The lock on the sidecar lock file, to be released by {@link #unlock}.
+     * @throws IOException If the lock cannot be taken, or the generation of the password file cannot be read.
+     */
+    private FileLock lock() throws IOException {
+        if (lockChannel == null) throw new IOException("Unable to lock " + path + " file");
+        processLock.lock();
+        FileLock lock = null;
+        try {
+            lock = lockChannel.lock();
+            long generation = readGeneration();
+            if (generation != channelGeneration) {
+                reopenChannel();
+                channelGeneration = generation;
+            }
+            if (channel == null) throw new IOException("Unable to open " + path + " file for appending");
+            return lock;
+        } catch (IOException | RuntimeException e) {
+            unlock(lock);
+            throw e;
+        }
+    }
+
+    private void unlock(FileLock lock) {
+        release(lock);
+        processLock.unlock();
+    }
+
+    /**
+     * Reads the generation of the password file from the sidecar lock file, which is 0 until the first compaction.
+     */
+    private long readGeneration() throws IOException {
+        ByteBuffer generation = ByteBuffer.allocate(Long.BYTES);
+        while (generation.hasRemaining()) {
+            if (lockChannel.read(generation, generation.position()) < 0) return 0; // Not yet written
+        }
+        return generation.getLong(0);
+    }
+
+    /**
+     * Durably records the generation of the password file in the sidecar lock file.
+     */
+    private void writeGeneration(long generation) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).putLong(0, generation);
+        while (buffer.hasRemaining()) {
+            lockChannel.write(buffer, buffer.position());
+        }
+        lockChannel.force(false);
+    }
+
+    @Override
+    public CredentialRecord getRecord(String username) {
+        return index.get(username);
+    }
+
+    /**
+     * Appends the given record to the password file and, once durable, publishes it to the index, unless its username
+     * is already enrolled.
+     */
+    @Override
+    public boolean add(CredentialRecord record) {
+        return addAll(List.of(record));
+    }
+
+    /**
+     * Appends the given records to the password file as part of the next group commit, returning once the commit is
+     * durable and its records are published to the index. No record is appended if any of their usernames is already
+     * enrolled, reserved by a concurrent append, or repeated among them.
+     */
+    @Override
+    public boolean addAll(List<CredentialRecord> records) {
+        if (!reserveUsernames(records)) {
+            return false; // A username is already taken
+        }
+        return append(new PendingAppend(Operation.ENROL, records));
+    }
+
+    /**
+     * Appends an update entry replacing the given record, and publishes the replacement to the index once durable. The
+     * file is not rewritten; the replaced record is dropped when the store is next compacted.
+     */
+    @Override
+    public boolean replace(CredentialRecord existing, CredentialRecord replacement) {
+        if (!replacement.getUsername().equals(existing.getUsername()) || !reserveExisting(existing)) {
+            return false;
+        }
+        return append(new PendingAppend(Operation.UPDATE, List.of(replacement)));
+    }
+
+    /**
+     * Appends a tombstone for the given record, and removes it from the index once durable.
+     */
+    @Override
+    public boolean remove(CredentialRecord existing) {
+        if (!reserveExisting(existing)) {
+            return false;
+        }
+        return append(new PendingAppend(Operation.DELETE, List.of(existing)));
+    }
+
+    /**
+     * Compacts the password file on the calling thread, unless a compaction is already underway.
+     */
+    @Override
+    public boolean compact() {
+        if (!isCompacting.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            return rewriteLiveRecords();
+        } finally {
+            isCompacting.set(false);
+        }
+    }
+
+    @Override
+    public boolean isWritable() {
+        return true;
+    }
+
+    // Getters
+    public long getEntryCount() { return entryCount; }
+    public int getLiveRecordCount() { return index.size(); }
+
+    /**
+     * Appends the given entries as part of the next group commit. The calling thread either commits the batch itself
+     * or waits for the thread that does. The usernames of the entries must have been reserved, and are released once
+     * the commit is published to the index or has failed.
+     *
+     * @return True if the entries were committed, false otherwise.
+     */
+    private boolean append(PendingAppend append) {
+        List<PendingAppend> batch;
+        synchronized (commitLock) {
+            pendingAppends.add(append);
+            while (isWriting && !append.isDone) {
+                awaitWritePath();
+            }
+            if (append.isDone) {
+                return append.isCommitted; // Committed by another thread's group commit
+            }
+            isWriting = true;
+            batch = pendingAppends;
+            pendingAppends = new ArrayList<>();
+        }
+        boolean isCommitted = commit(batch);
+        synchronized (commitLock) {
+            for (PendingAppend committed : batch) {
+                committed.isDone = true;
+                committed.isCommitted = isCommitted;
+                releaseUsernames(committed.records, committed.records.size()); // Now published, if committed
+            }
+            isWriting = false;
+            commitLock.notifyAll();
+        }
+        if (isCommitted && isCompactionDue()) {
+            compactInBackground();
+        }
+        return isCommitted;
+    }
+
+    /**
+     * Writes the given batch of appends through the channel in buffers of up to {@link #WRITE_BUFFER_SIZE} bytes and
+     * forces it once, under an exclusive lock on the file so that other processes never interleave their appends with
+     * it, then publishes its entries to the index. A batch that fails to be written is truncated from the file.
+     *
+     * @return True if the batch was committed, false otherwise.
+     */
+    private boolean commit(List<PendingAppend> batch) {
+        long committedSize = -1;
+        int committedEntries = 0;
+        FileLock lock;
+        try {
+            lock = lock();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        try {
+            committedSize = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+            for (PendingAppend append : batch) {
+                for (CredentialRecord record : append.records) {
+                    byte[] line = encode(append.operation.format(record));
+                    if (line.length > buffer.remaining()) {
+                        flush(channel, buffer);
+                    }
+                    if (line.length > buffer.capacity()) {
+                        writeFully(channel, ByteBuffer.wrap(line));
+                    } else {
+                        buffer.put(line);
+                    }
+                    ++committedEntries;
+                }
+            }
+            flush(channel, buffer);
+            channel.force(false);
+        } catch (IOException e) {
+            e.printStackTrace();
+            if (committedSize >= 0) {
+                try {
+                    channel.truncate(committedSize); // Discard the partial batch, so that later appends start on a new line
+                } catch (IOException truncationFailure) {
+                    truncationFailure.printStackTrace();
+                }
+            }
+            return false; // The entries were not appended
+        } finally {
+            unlock(lock);
+        }
+        entryCount += committedEntries;
+        for (PendingAppend append : batch) {
+            for (CredentialRecord record : append.records) {
+                if (append.operation == Operation.DELETE) {
+                    index.remove(record.getUsername());
+                } else {
+                    index.put(record.getUsername(), record);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reserves the usernames of the given records for an enrolment. A username is reserved before the index is
+     * checked, and released only once its entry is published, so that of two concurrent appends of one username,
+     * exactly one observes neither the other's reservation nor its published entry.
+     *
+     * @return True if every username was reserved, false if none was.
+     */
+    private boolean reserveUsernames(List<CredentialRecord> records) {
+        for (int i = 0; i < records.size(); ++i) {
+            String username = records.get(i).getUsername();
+            if (!reservedUsernames.add(username)) {
+                releaseUsernames(records, i);
+                return false;
+            }
+            if (index.containsKey(username)) {
+                releaseUsernames(records, i + 1);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reserves the username of the given record for an update or deletion, provided that the record is still the live
+     * record of its user.
+     *
+     * @return True if the username was reserved, false otherwise.
+     */
+    private boolean reserveExisting(CredentialRecord existing) {
+        String username = existing.getUsername();
+        if (!reservedUsernames.add(username)) {
+            return false; // The user is being modified concurrently
+        }
+        if (index.get(username) != existing) {
+            reservedUsernames.remove(username);
+            return false; // The record was already replaced or removed
+        }
+        return true;
+    }
+
+    /**
+     * Releases the usernames of the first given number of the given records.
+     */
+    private void releaseUsernames(List<CredentialRecord> records, int count) {
+        for (int i = 0; i < count; ++i) {
+            reservedUsernames.remove(records.get(i).getUsername());
+        }
+    }
+
+    /**
+     * Determines whether the superseded entries in the password file are numerous enough to compact away.
+     */
+    private boolean isCompactionDue() {
+        long supersededEntries = entryCount - index.size();
+        return supersededEntries >= COMPACTION_THRESHOLD && supersededEntries >= index.size();
+    }
+
+    private void compactInBackground() {
+        if (!isCompacting.compareAndSet(false, true)) {
+            return; // A compaction is already underway
+        }
+        Thread compactor = new Thread(() -> {
+            try {
+                rewriteLiveRecords();
+            } finally {
+                isCompacting.set(false);
+            }
+        }, "password-store-compactor");
+        compactor.setDaemon(true);
+        compactor.start();
+    }
+
+    /**
+     * Rewrites the live records in a snapshot of the password file into a new file while appends continue, then, with
+     * appends paused, copies the entries appended since the snapshot to the new file and atomically moves it into
+     * place. Readers of the file observe either the old file or the compacted one, never a partial rewrite.
+     *
+     * @return True if the file was compacted, false otherwise.
+     */
+    private boolean rewriteLiveRecords() {
+        Path passwd = Path.of(path);
+        Path compacted = Path.of(path + ".compact");
+
+        // Snapshot the file at a commit boundary, noting its generation lest another process compact it meanwhile
+        long snapshotLength;
+        long snapshotEntryCount;
+        long snapshotGeneration;
+        acquireWritePath();
+        try {
+            FileLock lock = lock();
+            try {
+                snapshotLength = channel.size();
+                snapshotEntryCount = entryCount;
+                snapshotGeneration = channelGeneration;
+            } finally {
+                unlock(lock);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            releaseWritePath();
+        }
+        if (snapshotLength > Integer.MAX_VALUE) {
+            System.err.println("Unable to compact " + path + " file, which exceeds 2 GiB");
+            return false;
+        }
+
+        try (FileChannel target = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            // Replay the snapshot and write its live records, without holding up appends
+            ByteBuffer snapshot = ByteBuffer.allocate((int) snapshotLength);
+            try (FileChannel source = FileChannel.open(passwd, StandardOpenOption.READ)) {
+                while (snapshot.hasRemaining()) {
+                    if (source.read(snapshot, snapshot.position()) < 0) {
+                        throw new IOException(path + " file was truncated during compaction");
+                    }
+                }
+            }
+            Map<String, CredentialRecord> live = new LinkedHashMap<>();
+            replay(snapshot.array(), path, live);
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+            for (CredentialRecord record : live.values()) {
+                byte[] line = encode(Operation.ENROL.format(record));
+                if (line.length > buffer.remaining()) {
+                    flush(target, buffer);
+                }
+                if (line.length > buffer.capacity()) {
+                    writeFully(target, ByteBuffer.wrap(line));
+                } else {
+                    buffer.put(line);
+                }
+            }
+            flush(target, buffer);
+
+            /* Copy the entries appended since the snapshot, then swap the compacted file in, having first advanced the
+             * generation so that every other store reopens its channel before its next append */
+            acquireWritePath();
+            try {
+                FileLock lock = lock();
+                try {
+                    if (channelGeneration != snapshotGeneration) {
+                        throw new IOException(path + " file was compacted by another process during compaction");
+                    }
+                    try (FileChannel source = FileChannel.open(passwd, StandardOpenOption.READ)) {
+                        long end = source.size();
+                        for (long position = snapshotLength; position < end; ) {
+                            position += source.transferTo(position, end - position, target);
+                        }
+                    }
+                    target.force(true); // The compacted file must be durable before it replaces the original
+                    writeGeneration(snapshotGeneration + 1); // A spurious reopen, should the move fail, is harmless
+                    Files.move(compacted, passwd, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    reopenChannel();
+                    channelGeneration = snapshotGeneration + 1;
+                    entryCount = live.size() + (entryCount - snapshotEntryCount);
+                } finally {
+                    unlock(lock);
+                }
+            } finally {
+                releaseWritePath();
+            }
+        } catch (IOException e) {
+            System.err.println("Unable to compact " + path + " file");
+            e.printStackTrace();
+            try {
+                Files.deleteIfExists(compacted);
+            } catch (IOException cleanupFailure) {
+                cleanupFailure.printStackTrace();
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Writes the given buffer, from its start to its position, through the given channel, then clears it.
+     */
+    private static void flush(FileChannel target, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        writeFully(target, buffer);
+        buffer.clear();
+    }
+
+    private static void writeFully(FileChannel target, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+
+    private static void release(FileLock lock) {
+        if (lock == null) return;
+        try {
+            lock.release();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Takes the write path exclusively, once no batch is being committed. Batches queue until it is released.
+     */
+    private void acquireWritePath() {
+        synchronized (commitLock) {
+            while (isWriting) {
+                awaitWritePath();
+            }
+            isWriting = true;
+        }
+    }
+
+    private void releaseWritePath() {
+        synchronized (commitLock) {
+            isWriting = false;
+            commitLock.notifyAll();
+        }
+    }
+
+    /**
+     * Waits on the commit lock, which the calling thread holds, for the write path to be released. Interrupts are
+     * deferred rather than abandoning an append whose outcome is not yet known.
+     */
+    private void awaitWritePath() {
+        boolean isInterrupted = false;
+        try {
+            commitLock.wait();
+        } catch (InterruptedException e) {
+            isInterrupted = true;
+        }
+        if (isInterrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The operation an entry of the password file records.
+     */
+    private enum Operation {
+
+        ENROL(null),
+        UPDATE("update"),
+        DELETE("delete");
+
+        private final String tag;
+
+        Operation(String tag) {
+            this.tag = tag;
+        }
+
+        /**
+         * Formats the entry content recording this operation on the given record.
+         */
+        String format(CredentialRecord record) {
+            return switch (this) {
+                case ENROL -> record.format();
+                case UPDATE -> record.format() + OPERATION_FIELD + tag;
+                case DELETE -> record.getUsername() + OPERATION_FIELD + tag;
+            };
+        }
+
+        /**
+         * Strips this operation's tag from the given entry content, leaving the user record it carries.
+         */
+        String strip(String content) {
+            return tag == null ? content : content.substring(0, content.length() - OPERATION_FIELD.length() - tag.length());
+        }
+
+        /**
+         * Determines the operation the given entry content records.
+         *
+         * @return The operation, or null if its tag is unrecognized.
+         */
+        static Operation of(String content) {
+            int operationStart = content.lastIndexOf(OPERATION_FIELD);
+            if (operationStart < 0) return ENROL;
+            String tag = content.substring(operationStart + OPERATION_FIELD.length());
+            for (Operation operation : values()) {
+                if (tag.equals(operation.tag)) return operation;
+            }
+            return null;
+        }
+
+    }
+
+    /**
+     * A batch of entries awaiting a group commit, and the outcome of that commit.
+     */
+    private static class PendingAppend {
+
+        private final Operation operation;
+        private final List<CredentialRecord> records;
+        private boolean isDone; // Guarded by commitLock
+        private boolean isCommitted; // Guarded by commitLock
+
+        PendingAppend(Operation operation, List<CredentialRecord> records) {
+            this.operation = operation;
+            this.records = records;
+        }
+
+    }
+
+}
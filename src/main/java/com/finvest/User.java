@@ -1,5 +1,9 @@
 package main.java.com.finvest;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -10,7 +14,8 @@ import java.util.UUID;
 public class User {
 
     private final UUID id;
-    private final Role role;
+    private final RoleEnum role;
+    private volatile PermissionOverlay permissionOverlay; // Permissions granted to this user's session
     private final String username;
 
     // Contact details
@@ -18,8 +23,11 @@ public class User {
     private final String phoneNumber;
     private final String email;
 
+    // Attributes against which ABAC rules are evaluated, e.g., clearance=high
+    private final Map<String, String> attributes;
+
     /**
-     * Constructs a Finvest Holdings user with their given information.
+     * Constructs a Finvest Holdings user with their given information and no ABAC attributes.
      *
      * @param role        The user's role, according to the access control policy.
      * @param username    The user's username.
@@ -28,24 +36,77 @@ public class User {
      * @param email       The user's email.
      */
     public User(RoleEnum role, String username, String name, String phoneNumber, String email) {
+        this(role, username, name, phoneNumber, email, Map.of());
+    }
+
+    /**
+     * Constructs a Finvest Holdings user with their given information.
+     *
+     * @param role        The user's role, according to the access control policy.
+     * @param username    The user's username.
+     * @param name        The user's name.
+     * @param phoneNumber The user's phone number.
+     * @param email       The user's email.
+     * @param attributes  The user's ABAC attributes.
+     */
+    public User(RoleEnum role, String username, String name, String phoneNumber, String email, Map<String, String> attributes) {
 
         // Assign the user's ID
         id = UUID.randomUUID();
 
-        // Assign the user's role as per the access control policy
-        this.role = new AccessControlPolicy().getRole(role);
+        // Assign the user's role as per the access control policy, whose definition is shared by every holder of that role
+        this.role = role;
+        permissionOverlay = PermissionOverlay.EMPTY;
 
         this.username = username;
         this.name = name;
         this.phoneNumber = phoneNumber;
         this.email = email;
+        this.attributes = attributes;
     }
 
     // Getters
     public UUID getID() { return id; }
-    public Role getRole() { return role; }
+    public Role getRole() { return AccessControlPolicy.getSharedRole(role); }
+    public RoleEnum getRoleEnum() { return role; }
     public String getUsername() { return username; }
     public String getName() { return name; }
+    public String getAttribute(String key) { return attributes.get(key); }
+
+    public PermissionOverlay getPermissionOverlay() { return permissionOverlay; }
+
+    /**
+     * Grants this user's session the given read permissions for the given duration, on top of their shared role.
+     *
+     * @param readPermissions The read permissions to grant.
+     * @param duration        The duration for which to grant them.
+     */
+    public synchronized void grantReadPermissions(Permission[] readPermissions, Duration duration) {
+        long mask = 0L;
+        for (Permission readPermission : readPermissions) {
+            mask |= readPermission.getBit();
+        }
+        long now = System.nanoTime();
+        permissionOverlay = permissionOverlay.withReadPermissions(mask, now + duration.toNanos(), now);
+    }
+
+    /**
+     * Gets the labels of the read permissions currently held by this user: those of their role, followed by those
+     * granted to their session.
+     *
+     * @return The user's effective read permissions.
+     */
+    public List<String> getEffectiveReadPermissions() {
+        Role role = getRole();
+        List<String> readPermissions = new ArrayList<>(role.getReadPermissions());
+        long grantedMask = permissionOverlay.getReadMask(System.nanoTime()) & ~role.getReadMask();
+        for (Permission permission : Permission.values()) {
+            if ((grantedMask & permission.getBit()) != 0) {
+                readPermissions.add(permission.toString());
+            }
+        }
+        return readPermissions;
+    }
 
     @Override
     public String toString() { return name + ", " + phoneNumber + ", " + email; }
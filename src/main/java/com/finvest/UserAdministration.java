@@ -0,0 +1,62 @@
+package main.java.com.finvest;
+
+import java.util.Scanner;
+
+/**
+ * Drives the administration of enrolled users: changing a user's password or role, removing a user, and compacting
+ * the password store.
+ * <p>
+ * Usage: {@code UserAdministration (password <username> | role <username> <role> | remove <username> | compact)}
+ *
+ * @author Paul Roode
+ */
+public class UserAdministration {
+
+    public static void main(String[] argv) {
+        if (argv.length == 0 || !isValidCommand(argv)) {
+            System.err.println("Usage: UserAdministration (password <username> | role <username> <role> | remove <username> | compact)");
+            System.exit(1);
+        }
+        PasswordManager passwordManager = new PasswordManager();
+        if (!argv[0].equals("compact") && !passwordManager.isUsernameEnrolled(argv[1])) {
+            System.err.println("No user is enrolled under the username " + argv[1]);
+            System.exit(1);
+        }
+        boolean isSuccessful = switch (argv[0]) {
+            case "password" -> {
+                Scanner scanner = new Scanner(System.in);
+                String password;
+                do { // Prompt for the new password, with proactive password checking
+                    System.out.println("Enter new password: ");
+                    password = scanner.nextLine();
+                } while (!passwordManager.checkPassword(argv[1], password));
+                scanner.close();
+                yield passwordManager.changePassword(argv[1], password);
+            }
+            case "role" -> passwordManager.changeRole(argv[1], argv[2]);
+            case "remove" -> passwordManager.removeUser(argv[1]);
+            default -> passwordManager.compactPasswordStore();
+        };
+        if (isSuccessful) {
+            System.out.println(switch (argv[0]) {
+                case "password" -> "The password of " + argv[1] + " was changed";
+                case "role" -> "The role of " + argv[1] + " was changed to " + argv[2];
+                case "remove" -> argv[1] + " was removed";
+                default -> "The password store was compacted";
+            });
+            System.exit(0);
+        }
+        System.err.println("Unable to " + (argv[0].equals("compact") ? "compact the password store" : "update " + argv[1]));
+        System.exit(1);
+    }
+
+    private static boolean isValidCommand(String[] argv) {
+        return switch (argv[0]) {
+            case "password", "remove" -> argv.length == 2;
+            case "role" -> argv.length == 3;
+            case "compact" -> argv.length == 1;
+            default -> false;
+        };
+    }
+
+}
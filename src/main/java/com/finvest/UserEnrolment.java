@@ -1,5 +1,7 @@
 package main.java.com.finvest;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Scanner;
 
 /**
@@ -15,6 +17,27 @@ public class UserEnrolment {
          * adding user records to the password file */
         PasswordManager passwordManager = new PasswordManager();
 
+        // Enrol users non-interactively from a CSV file, e.g., UserEnrolment --bulk clients.csv [rejects.csv]
+        if (argv.length > 0 && argv[0].equals("--bulk")) {
+            if (argv.length < 2 || argv.length > 3) {
+                System.err.println("Usage: UserEnrolment --bulk <csv> [rejectFile]");
+                System.exit(1);
+            }
+            Path rejectFile = Path.of(argv.length == 3 ? argv[2] : argv[1] + ".rejects");
+            try {
+                BulkEnrolment.Report report = new BulkEnrolment(passwordManager).enrol(Path.of(argv[1]), rejectFile);
+                System.out.println("Bulk enrolment complete: " + report);
+                if (report.getRejected() > 0) {
+                    System.out.println("Rejected rows were written to " + rejectFile);
+                }
+                System.exit(0);
+            } catch (IOException e) {
+                System.err.println("Unable to enrol users from " + argv[1]);
+                e.printStackTrace();
+                System.exit(1);
+            }
+        }
+
         // Initiate user enrolment
         System.out.println("Finvest Holdings");
         System.out.println("Client Holdings and Information System");
@@ -27,7 +50,13 @@ public class UserEnrolment {
             do { // Prompt for username
                 System.out.println("Enter username: ");
                 username = scanner.nextLine().trim();
-            } while (username.isEmpty() || username.equals("/n"));
+                if (username.contains(":") || username.contains(",")) {
+                    System.out.println("Usernames must not contain \":\" or \",\"");
+                } else if (passwordManager.isUsernameEnrolled(username)) {
+                    System.out.println("That username is already taken");
+                    username = "";
+                }
+            } while (!passwordManager.validateUsername(username) || username.equals("/n"));
             String password;
             do { // Prompt for password
                 System.out.println("Enter password: ");
@@ -49,21 +78,32 @@ public class UserEnrolment {
             do { // Prompt for name
                 System.out.println("Enter name: ");
                 name = scanner.nextLine().trim();
-            } while (name.isEmpty() || name.equals("/n"));
+                if (name.contains(":") || name.contains(",")) {
+                    System.out.println("Contact details must not contain \":\" or \",\"");
+                }
+            } while (!passwordManager.validateContactDetail(name) || name.equals("/n"));
             String phoneNumber;
             do { // Prompt for phone number
                 System.out.println("Enter phone number: ");
                 phoneNumber = scanner.nextLine().trim();
-            } while (phoneNumber.isEmpty() || phoneNumber.equals("/n"));
+                if (phoneNumber.contains(":") || phoneNumber.contains(",")) {
+                    System.out.println("Contact details must not contain \":\" or \",\"");
+                }
+            } while (!passwordManager.validateContactDetail(phoneNumber) || phoneNumber.equals("/n"));
             String email;
             do { // Prompt for email
                 System.out.println("Enter email address: ");
                 email = scanner.nextLine().trim();
-            } while (email.isEmpty() || email.equals("/n"));
+                if (email.contains(":") || email.contains(",")) {
+                    System.out.println("Contact details must not contain \":\" or \",\"");
+                }
+            } while (!passwordManager.validateContactDetail(email) || email.equals("/n"));
 
             // Add a user record to the password file
             if (passwordManager.addUserRecordToPasswordFile(username, password, role, name, phoneNumber, email)) {
                 System.out.println("You were successfully enrolled into the system!\n");
+            } else if (passwordManager.isUsernameEnrolled(username)) { // Taken by a concurrent enrolment
+                System.out.println("That username was taken while you were enrolling; please enrol with another\n");
             } else {
                 System.err.println("Unable to create user record");
                 System.exit(1);
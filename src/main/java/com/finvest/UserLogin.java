@@ -1,5 +1,6 @@
 package main.java.com.finvest;
 
+import java.net.InetAddress;
 import java.util.Objects;
 import java.util.Scanner;
 
@@ -18,6 +19,7 @@ public class UserLogin {
 
         PasswordManager passwordManager = new PasswordManager(); // For validating roles
         AccessControlPolicy accessControlPolicy = new AccessControlPolicy(); // For enforcing ABAC and OBAC
+        SessionManager sessionManager = new SessionManager(); // For resolving each operation's user without rehashing
 
         // Initiate user login
         System.out.println("Finvest Holdings");
@@ -39,10 +41,13 @@ public class UserLogin {
             } while (password.isEmpty() || password.equals("/n"));
 
             // Validate the user's login credentials
-            User user = passwordManager.getValidatedUser(username, password);
+            InetAddress source = InetAddress.getLoopbackAddress(); // Console sessions are local
+            User user = passwordManager.getValidatedUser(username, password, source);
             if (user != null) {
-                if (accessControlPolicy.enforceABAC(user)) { // Enforce ABAC on the user
+                AccessContext context = accessControlPolicy.startSession(source);
+                if (accessControlPolicy.enforceABAC(user, context)) { // Enforce ABAC on the user
                     System.out.println("ACCESS GRANTED\n");
+                    String sessionToken = sessionManager.createSession(user, context);
 
                     // Provide the user's actionable access permissions
                     System.out.println(ANSI_BLUE + "Username: " + user.getUsername() + ", Role: " + user.getRole() + ANSI_RESET + "\n");
@@ -62,6 +67,20 @@ public class UserLogin {
                         delimitedUserInput = userInput.split(" ");
                         if (delimitedUserInput.length == 0) continue;
 
+                        // Resolve the user from their session, which expires once idle or after its absolute timeout
+                        User sessionUser = sessionManager.getUser(sessionToken);
+                        if (sessionUser == null) {
+                            System.out.println("Your session has expired");
+                            System.out.println("Logging out...\n");
+                            break;
+                        }
+
+                        // Re-enforce ABAC, e.g., should business hours have ended or the session have expired
+                        if (!accessControlPolicy.enforceABAC(sessionUser, context)) {
+                            System.out.println("Logging out...\n");
+                            break;
+                        }
+
                         // Enforce OBAC
                         String operation = delimitedUserInput[0];
                         StringBuilder object = null;
@@ -76,8 +95,9 @@ public class UserLogin {
                         } else {
                             operation = userInput;
                         }
-                        isThereAUserActionToProcess = accessControlPolicy.doOperation(user, operation, object == null ? null : object.toString());
+                        isThereAUserActionToProcess = accessControlPolicy.doOperation(sessionUser, operation, object == null ? null : object.toString());
                     }
+                    sessionManager.invalidate(sessionToken);
 
                 }
             } else {
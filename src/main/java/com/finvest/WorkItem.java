@@ -0,0 +1,35 @@
+package main.java.com.finvest;
+
+/**
+ * An item of OBAC workflow, e.g., a modification pending validation by a Compliance Officer: the user who raised it,
+ * the object it pertains to, and when it was raised.
+ *
+ * @author Paul Roode
+ */
+public class WorkItem {
+
+    private final User user;
+    private final Permission object;
+    private final long timestamp;
+
+    /**
+     * Constructs a work item raised now.
+     *
+     * @param user   The user who raised the work item.
+     * @param object The object to which the work item pertains.
+     */
+    public WorkItem(User user, Permission object) {
+        this.user = user;
+        this.object = object;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    // Getters
+    public User getUser() { return user; }
+    public Permission getObject() { return object; }
+    public long getTimestamp() { return timestamp; }
+
+    @Override
+    public String toString() { return user.getUsername() + ", " + object + ", " + timestamp; }
+
+}
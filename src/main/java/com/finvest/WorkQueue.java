@@ -0,0 +1,82 @@
+package main.java.com.finvest;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * A bounded, lock-free queue of OBAC workflow items, which may be raised and drained concurrently by any number of
+ * sessions. Items raised while the queue is full are rejected and counted as overflow.
+ *
+ * @author Paul Roode
+ */
+public class WorkQueue {
+
+    private final String name;
+    private final BoundedMpmcQueue<WorkItem> queue;
+
+    // Metrics
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder drained = new LongAdder();
+    private final LongAdder overflowed = new LongAdder();
+
+    /**
+     * Constructs a work queue with the given name and capacity.
+     *
+     * @param name     The name of the queue, for reporting.
+     * @param capacity The minimum number of items the queue can hold.
+     */
+    public WorkQueue(String name, int capacity) {
+        this.name = name;
+        queue = new BoundedMpmcQueue<>(capacity);
+    }
+
+    /**
+     * Submits the given work item.
+     *
+     * @param workItem The work item to submit.
+     * @return True if the work item was queued, false if the queue is full.
+     */
+    public boolean submit(WorkItem workItem) {
+        if (queue.offer(workItem)) {
+            submitted.increment();
+            return true;
+        }
+        overflowed.increment();
+        return false;
+    }
+
+    /**
+     * Removes up to the given number of work items, in submission order, and passes each to the given action.
+     *
+     * @param action       The action to perform on each drained work item.
+     * @param maxBatchSize The maximum number of work items to drain.
+     * @return The number of drained work items.
+     */
+    public int drain(Consumer<WorkItem> action, int maxBatchSize) {
+        int count = 0;
+        WorkItem workItem;
+        while (count < maxBatchSize && (workItem = queue.poll()) != null) {
+            action.accept(workItem);
+            ++count;
+        }
+        drained.add(count);
+        return count;
+    }
+
+    // Getters
+    public boolean isEmpty() { return queue.isEmpty(); }
+    public int size() { return queue.size(); }
+    public int capacity() { return queue.capacity(); }
+    public long getSubmittedCount() { return submitted.sum(); }
+    public long getDrainedCount() { return drained.sum(); }
+    public long getOverflowCount() { return overflowed.sum(); }
+
+    @Override
+    public String toString() {
+        return name + ": size=" + size() + "/" + capacity()
+                + ", submitted=" + getSubmittedCount()
+                + ", drained=" + getDrainedCount()
+                + ", overflowed=" + getOverflowCount();
+    }
+
+}
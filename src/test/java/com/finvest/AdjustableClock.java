@@ -0,0 +1,35 @@
+package test.java.com.finvest;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * A UTC clock that tests advance explicitly, e.g., to expire sessions or decay failure counts.
+ *
+ * @author Paul Roode
+ */
+class AdjustableClock extends Clock {
+
+    private Instant instant;
+
+    AdjustableClock(Instant instant) {
+        this.instant = instant;
+    }
+
+    void advance(Duration duration) {
+        instant = instant.plus(duration);
+    }
+
+    @Override
+    public ZoneId getZone() { return ZoneOffset.UTC; }
+
+    @Override
+    public Clock withZone(ZoneId zone) { throw new UnsupportedOperationException(); }
+
+    @Override
+    public Instant instant() { return instant; }
+
+}
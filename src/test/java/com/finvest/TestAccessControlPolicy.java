@@ -1,8 +1,28 @@
 package test.java.com.finvest;
 
+import main.java.com.finvest.AbacRuleSet;
+import main.java.com.finvest.AccessContext;
 import main.java.com.finvest.AccessControlPolicy;
+import main.java.com.finvest.Action;
+import main.java.com.finvest.CoarseClock;
+import main.java.com.finvest.Decision;
+import main.java.com.finvest.DecisionCache;
+import main.java.com.finvest.Permission;
+import main.java.com.finvest.Role;
+import main.java.com.finvest.RoleEnum;
+import main.java.com.finvest.SessionManager;
 import main.java.com.finvest.User;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
 import static main.java.com.finvest.RoleEnum.*;
 
 /**
@@ -12,9 +32,15 @@ import static main.java.com.finvest.RoleEnum.*;
  */
 public class TestAccessControlPolicy {
 
-    public static void main(String[] argv) {
+    public static void main(String[] argv) throws UnknownHostException {
         testRoles();
         testOperationAuthorization();
+        testDecisionCache();
+        testAuthorize();
+        testBatchAuthorization();
+        testBusinessHours();
+        testAbacRules();
+        testSessions();
         System.out.println("Error messages:");
     }
 
@@ -215,6 +241,225 @@ public class TestAccessControlPolicy {
         System.out.println("\nActual:");
         accessControlPolicy.doOperation(technicalSupport, "read", "Investment Portfolio");
         System.out.println("--------------------------------------------------");
+
+        System.out.println("Testing that augmented permissions are confined to the augmented session...\n");
+        User otherTechnicalSupport = new User(TECHNICAL_SUPPORT, "ohale", "Otto Hale", "(555) 555-5555", "ohale@finvest.ca");
+        System.out.println("Expected:");
+        System.out.println("Read permission denied");
+        System.out.println("\nActual:");
+        accessControlPolicy.doOperation(otherTechnicalSupport, "read", "Investment Portfolio");
+        System.out.println("--------------------------------------------------");
+    }
+
+    /**
+     * Tests the caching of RBAC decisions and their invalidation upon the redefinition of a role.
+     */
+    public static void testDecisionCache() {
+        System.out.println("\nTestAccessControlPolicy::testDecisionCache results:");
+        System.out.println("==================================================");
+        DecisionCache decisionCache = AccessControlPolicy.getDecisionCache();
+        User client = new User(CLIENT, "mlowery", "Mischa Lowery", "(555) 555-5555", "mlowery@finvest.ca");
+        System.out.println("Testing 1000 identical checks...\n");
+        long hits = decisionCache.getHitCount();
+        long misses = decisionCache.getMissCount();
+        boolean isPermitted = true;
+        for (int i = 0; i < 1000; ++i) {
+            isPermitted &= AccessControlPolicy.isPermitted(client, Action.READ, Permission.ACCOUNT_BALANCE);
+        }
+        System.out.println("Expected: true, 999 hits, 1 miss");
+        System.out.println("Actual: " + isPermitted + ", " + (decisionCache.getHitCount() - hits) + " hits, "
+                + (decisionCache.getMissCount() - misses) + " miss");
+        System.out.println("--------------------------------------------------");
+
+        System.out.println("Testing a check after the Client role is redefined without Account Balance...\n");
+        Role clientRole = client.getRole();
+        AccessControlPolicy.redefineRole(new Role(CLIENT,
+                new String[]{AccessControlPolicy.CLIENT_INFORMATION},
+                clientRole.getWritePermissions().toArray(new String[0]),
+                clientRole.getSpecialPermissions().toArray(new String[0])));
+        System.out.println("Expected: false");
+        System.out.println("Actual: " + AccessControlPolicy.isPermitted(client, Action.READ, Permission.ACCOUNT_BALANCE));
+        AccessControlPolicy.redefineRole(clientRole);
+        System.out.println("--------------------------------------------------");
+    }
+
+    /**
+     * Tests the decisions of the side-effect-free authorization engine.
+     */
+    public static void testAuthorize() {
+        System.out.println("\nTestAccessControlPolicy::testAuthorize results:");
+        System.out.println("==================================================");
+        User premiumClient = new User(PREMIUM_CLIENT, "wgarza", "Willow Garza", "(555) 555-5555", "wgarza@finvest.ca");
+        System.out.println("Testing the decisions on a Premium Client's reads and writes...\n");
+        System.out.println("Expected: PERMIT, PERMIT_PENDING_VALIDATION, DENY, DENY");
+        System.out.println("Actual: "
+                + AccessControlPolicy.authorize(premiumClient, Action.READ, Permission.ACCOUNT_BALANCE) + ", "
+                + AccessControlPolicy.authorize(premiumClient, Action.WRITE, Permission.INVESTMENT_PORTFOLIO) + ", "
+                + AccessControlPolicy.authorize(premiumClient, Action.WRITE, Permission.ACCOUNT_BALANCE) + ", "
+                + AccessControlPolicy.authorize(premiumClient, Action.READ, null));
+        System.out.println("--------------------------------------------------");
+
+        System.out.println("Testing that deciding leaves the OBAC workflow untouched...\n");
+        AccessControlPolicy accessControlPolicy = new AccessControlPolicy();
+        Decision decision = AccessControlPolicy.authorize(premiumClient, Action.SPECIAL, Permission.REQUEST_TECHNICAL_SUPPORT);
+        System.out.println("Expected: PERMIT, 0 account access grants");
+        System.out.println("Actual: " + decision + ", " + accessControlPolicy.getAccountAccessGrants().size() + " account access grants");
+        System.out.println("--------------------------------------------------");
+    }
+
+    /**
+     * Tests that batch authorization agrees with individual checks, both below and above the parallel threshold.
+     */
+    public static void testBatchAuthorization() {
+        System.out.println("\nTestAccessControlPolicy::testBatchAuthorization results:");
+        System.out.println("==================================================");
+        Random random = new Random(42);
+        for (int batchSize : new int[]{100, 4 * DecisionCache.PARALLEL_BATCH_THRESHOLD + 3}) {
+            System.out.println("Testing a batch of " + batchSize + " checks...\n");
+            int[] roleIds = new int[batchSize];
+            int[] actionIds = new int[batchSize];
+            int[] objectIds = new int[batchSize];
+            for (int i = 0; i < batchSize; ++i) {
+                roleIds[i] = random.nextInt(RoleEnum.values().length);
+                actionIds[i] = random.nextInt(Action.values().length);
+                objectIds[i] = random.nextInt(Permission.values().length);
+            }
+            objectIds[batchSize - 1] = -1; // An unknown object, which must be denied
+            long[] results = AccessControlPolicy.authorizeAll(roleIds, actionIds, objectIds);
+            int mismatches = 0;
+            for (int i = 0; i < batchSize - 1; ++i) {
+                User user = new User(RoleEnum.values()[roleIds[i]], "batch", "Batch User", "(555) 555-5555", "batch@finvest.ca");
+                boolean expected = AccessControlPolicy.isPermitted(user, Action.values()[actionIds[i]], Permission.values()[objectIds[i]]);
+                if (expected != ((results[i / Long.SIZE] & 1L << i) != 0)) ++mismatches;
+            }
+            boolean unknownDenied = (results[(batchSize - 1) / Long.SIZE] & 1L << (batchSize - 1)) == 0;
+            System.out.println("Expected: 0 mismatches, unknown object denied");
+            System.out.println("Actual: " + mismatches + " mismatches, unknown object " + (unknownDenied ? "denied" : "permitted"));
+            System.out.println("--------------------------------------------------");
+        }
+    }
+
+    /**
+     * Tests that Tellers are confined to business hours, as read from a coarse clock over an injected clock.
+     */
+    public static void testBusinessHours() {
+        System.out.println("\nTestAccessControlPolicy::testBusinessHours results:");
+        System.out.println("==================================================");
+        Clock morning = Clock.fixed(Instant.parse("2022-03-01T08:59:00Z"), ZoneOffset.UTC);
+        User teller = new User(TELLER, "kbanks", "Kiran Banks", "(555) 555-5555", "kbanks@finvest.ca");
+        User client = new User(CLIENT, "mlowery", "Mischa Lowery", "(555) 555-5555", "mlowery@finvest.ca");
+        System.out.println("Testing a Teller and a Client at 08:59, 09:00, 17:59, and 18:00...\n");
+        StringBuilder actual = new StringBuilder();
+        for (Duration offset : new Duration[]{Duration.ZERO, Duration.ofMinutes(1), Duration.ofMinutes(540), Duration.ofMinutes(541)}) {
+            CoarseClock coarseClock = new CoarseClock(Clock.offset(morning, offset));
+            AccessControlPolicy accessControlPolicy = new AccessControlPolicy(AbacRuleSet.compile(AbacRuleSet.DEFAULT_RULES, coarseClock));
+            actual.append(accessControlPolicy.enforceABAC(teller)).append("/").append(accessControlPolicy.enforceABAC(client)).append(" ");
+        }
+        System.out.println("Expected: false/true true/true true/true false/true");
+        System.out.println("Actual: " + actual.toString().trim());
+        System.out.println("--------------------------------------------------");
+    }
+
+    /**
+     * Tests the compiled ABAC rules over days of the week, source networks, session age, and user attributes.
+     */
+    public static void testAbacRules() throws UnknownHostException {
+        System.out.println("\nTestAccessControlPolicy::testAbacRules results:");
+        System.out.println("==================================================");
+        CoarseClock coarseClock = new CoarseClock(Clock.fixed(Instant.parse("2022-03-05T12:00:00Z"), ZoneOffset.UTC)); // A Saturday
+        AbacRuleSet abacRules = AbacRuleSet.compile(List.of(
+                "# Finvest Holdings ABAC rules",
+                "Teller:days:MON-FRI",
+                "*:network:10.0.0.0/8, 127.0.0.1",
+                "Technical Support:session-age:60 # One hour",
+                "Compliance Officer:attribute:clearance=high"
+        ), coarseClock);
+        AccessControlPolicy accessControlPolicy = new AccessControlPolicy(abacRules);
+        AccessContext office = accessControlPolicy.startSession(InetAddress.getByName("10.1.2.3"));
+        AccessContext elsewhere = accessControlPolicy.startSession(InetAddress.getByName("192.168.0.1"));
+        AccessContext staleSession = new AccessContext(InetAddress.getByName("10.1.2.3"), coarseClock.getEpochMinute() - 60);
+
+        System.out.println("Testing the number of rules compiled for a Client, a Teller, and a Compliance Officer...\n");
+        System.out.println("Expected: 1, 2, 2");
+        System.out.println("Actual: " + abacRules.getRuleCount(CLIENT) + ", " + abacRules.getRuleCount(TELLER) + ", "
+                + abacRules.getRuleCount(COMPLIANCE_OFFICER));
+        System.out.println("--------------------------------------------------");
+
+        System.out.println("Testing a Client from within and outside the office network...\n");
+        User client = new User(CLIENT, "mlowery", "Mischa Lowery", "(555) 555-5555", "mlowery@finvest.ca");
+        System.out.println("Expected: true, false");
+        System.out.println("Actual: " + accessControlPolicy.enforceABAC(client, office) + ", " + accessControlPolicy.enforceABAC(client, elsewhere));
+        System.out.println("--------------------------------------------------");
+
+        System.out.println("Testing a Teller on a Saturday...\n");
+        User teller = new User(TELLER, "kbanks", "Kiran Banks", "(555) 555-5555", "kbanks@finvest.ca");
+        System.out.println("Expected: false");
+        System.out.println("Actual: " + accessControlPolicy.enforceABAC(teller, office));
+        System.out.println("--------------------------------------------------");
+
+        System.out.println("Testing Technical Support in a new and an hour-old session...\n");
+        User technicalSupport = new User(TECHNICAL_SUPPORT, "tsupport", "Theo Support", "(555) 555-5555", "tsupport@finvest.ca");
+        System.out.println("Expected: true, false");
+        System.out.println("Actual: " + accessControlPolicy.enforceABAC(technicalSupport, office) + ", "
+                + accessControlPolicy.enforceABAC(technicalSupport, staleSession));
+        System.out.println("--------------------------------------------------");
+
+        System.out.println("Testing Compliance Officers with and without clearance...\n");
+        User clearedOfficer = new User(COMPLIANCE_OFFICER, "cofficer", "Casey Officer", "(555) 555-5555", "cofficer@finvest.ca",
+                Map.of("clearance", "high"));
+        User unclearedOfficer = new User(COMPLIANCE_OFFICER, "uofficer", "Uma Officer", "(555) 555-5555", "uofficer@finvest.ca");
+        System.out.println("Expected: true, false");
+        System.out.println("Actual: " + accessControlPolicy.enforceABAC(clearedOfficer, office) + ", "
+                + accessControlPolicy.enforceABAC(unclearedOfficer, office));
+        System.out.println("--------------------------------------------------");
+    }
+
+    /**
+     * Tests that session tokens resolve to their user until they expire after their idle or absolute timeout.
+     */
+    public static void testSessions() {
+        System.out.println("\nTestAccessControlPolicy::testSessions results:");
+        System.out.println("==================================================");
+        AdjustableClock clock = new AdjustableClock(Instant.parse("2022-03-01T09:00:00Z"));
+        CoarseClock coarseClock = new CoarseClock(clock);
+        SessionManager sessionManager = new SessionManager(coarseClock, 15, 60);
+        User teller = new User(TELLER, "kbanks", "Kiran Banks", "(555) 555-5555", "kbanks@finvest.ca");
+        AccessContext context = AccessContext.startSession(InetAddress.getLoopbackAddress(), coarseClock);
+
+        System.out.println("Testing that distinct sessions of one user resolve to the same shared user...\n");
+        String token = sessionManager.createSession(teller, context);
+        String otherToken = sessionManager.createSession(teller, context);
+        System.out.println("Expected: true, true, null");
+        System.out.println("Actual: " + !token.equals(otherToken) + ", " + (sessionManager.getUser(token) == sessionManager.getUser(otherToken))
+                + ", " + sessionManager.getUser("forged"));
+        System.out.println("--------------------------------------------------");
+
+        System.out.println("Testing a session kept active every 10 minutes against its 15-minute idle and 60-minute absolute timeouts...\n");
+        StringBuilder actual = new StringBuilder();
+        for (int minute = 10; minute <= 60; minute += 10) {
+            clock.advance(Duration.ofMinutes(10));
+            coarseClock.tick();
+            actual.append(sessionManager.getUser(token) != null).append(" ");
+        }
+        System.out.println("Expected: true true true true true false");
+        System.out.println("Actual: " + actual.toString().trim());
+        System.out.println("--------------------------------------------------");
+
+        System.out.println("Testing that the sweeper reclaims the idle session, shard by shard...\n");
+        int reclaimed = 0;
+        for (int i = 0; i < SessionManager.SHARD_COUNT; ++i) {
+            reclaimed += sessionManager.sweep();
+        }
+        System.out.println("Expected: 1 reclaimed, 0 remaining");
+        System.out.println("Actual: " + reclaimed + " reclaimed, " + sessionManager.getSessionCount() + " remaining");
+        System.out.println("--------------------------------------------------");
+
+        System.out.println("Testing logout...\n");
+        String loggedOutToken = sessionManager.createSession(teller, context);
+        System.out.println("Expected: true, null");
+        System.out.println("Actual: " + sessionManager.invalidate(loggedOutToken) + ", " + sessionManager.getUser(loggedOutToken));
+        System.out.println("--------------------------------------------------");
+        sessionManager.shutdown();
     }
 
-}
\ No newline at end of file
+}
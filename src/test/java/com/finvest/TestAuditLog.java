@@ -0,0 +1,210 @@
+package test.java.com.finvest;
+
+import main.java.com.finvest.AuditLog;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Drives the testing of the audit log.
+ *
+ * @author Paul Roode
+ */
+public class TestAuditLog {
+
+    public static void main(String[] argv) throws IOException, InterruptedException {
+        testRecording();
+        testDrops();
+        testRotation();
+        testCloseWhileRecording();
+        System.out.println("Error messages:");
+    }
+
+    /**
+     * Verifies that decisions recorded concurrently are each written as a JSON line once the log is closed.
+     */
+    public static void testRecording() throws IOException, InterruptedException {
+        System.out.println("\nTestAuditLog::testRecording results:");
+        System.out.println("==========================================================");
+        Path directory = Files.createTempDirectory("audit");
+        try {
+            Path logFile = directory.resolve("audit.log");
+            AuditLog auditLog = new AuditLog(logFile.toString(), 1 << 16, AuditLog.DEFAULT_MAX_FILE_BYTES, 2);
+            InetAddress source = InetAddress.getByName("10.1.2.3");
+            List<Thread> producers = new ArrayList<>();
+            for (int i = 0; i < 4; ++i) {
+                int producer = i;
+                producers.add(new Thread(() -> {
+                    for (int j = 0; j < 5000; ++j) {
+                        auditLog.record(AuditLog.Event.OBAC, AuditLog.Outcome.GRANTED, "user" + producer,
+                                "read Client Information", source);
+                    }
+                }));
+            }
+            auditLog.record(AuditLog.Event.AUTHENTICATION, AuditLog.Outcome.DENIED, "k\"banks\\", "line\nbreak", null);
+            producers.forEach(Thread::start);
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            auditLog.close();
+            List<String> lines = Files.readAllLines(logFile);
+
+            System.out.println("Testing that every recorded decision is written once the log is closed...");
+            System.out.println("Expected: 20001 written, 20001 lines\nActual: " + auditLog.getWrittenCount() + " written, "
+                    + lines.size() + " lines");
+            System.out.println("----------------------------------------------------------");
+
+            System.out.println("Testing that fields are escaped as JSON...");
+            System.out.println("Expected: {\"event\":\"authentication\",\"outcome\":\"denied\",\"user\":\"k\\\"banks\\\\\",\"detail\":\"line\\nbreak\"}"
+                    + "\nActual:   {" + lines.get(0).substring(lines.get(0).indexOf("\"event\"")));
+            System.out.println("----------------------------------------------------------");
+
+            System.out.println("Testing that decisions recorded after the log is closed are dropped...");
+            System.out.println("Expected: false, 1 dropped\nActual: "
+                    + auditLog.record(AuditLog.Event.ABAC, AuditLog.Outcome.GRANTED, "late", null, null) + ", "
+                    + auditLog.getDroppedCount() + " dropped");
+            System.out.println("----------------------------------------------------------");
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * Verifies that decisions recorded faster than the writer drains a small buffer are dropped rather than blocking,
+     * and that every decision is either written or counted as dropped, with the drops reported in the log.
+     */
+    public static void testDrops() throws IOException {
+        System.out.println("\nTestAuditLog::testDrops results:");
+        System.out.println("==========================================================");
+        Path directory = Files.createTempDirectory("audit");
+        try {
+            Path logFile = directory.resolve("audit.log");
+            AuditLog auditLog = new AuditLog(logFile.toString(), 16, AuditLog.DEFAULT_MAX_FILE_BYTES, 2);
+            for (int i = 0; i < 100_000; ++i) {
+                auditLog.record(AuditLog.Event.AUTHENTICATION, AuditLog.Outcome.DENIED, "user" + i, null, null);
+            }
+            auditLog.close();
+            long reportedDrops = 0;
+            try (Stream<String> lines = Files.lines(logFile)) {
+                for (String line : (Iterable<String>) lines.filter(line -> line.contains("\"outcome\":\"dropped\""))::iterator) {
+                    int detail = line.indexOf("\"detail\":\"") + "\"detail\":\"".length();
+                    reportedDrops += Long.parseLong(line.substring(detail, line.indexOf('"', detail)));
+                }
+            }
+
+            System.out.println("Testing that a full buffer drops and counts decisions, with backpressure...");
+            System.out.println("Expected: true, true\nActual: " + (auditLog.getDroppedCount() > 0) + ", "
+                    + (auditLog.getBackpressureCount() > 0));
+            System.out.println("----------------------------------------------------------");
+
+            System.out.println("Testing that every decision is either written or dropped, and the drops reported in the log...");
+            long written = auditLog.getWrittenCount() - (reportedDrops > 0 ? countDropReports(logFile) : 0);
+            System.out.println("Expected: 100000, " + auditLog.getDroppedCount() + " reported\nActual: "
+                    + (written + auditLog.getDroppedCount()) + ", " + reportedDrops + " reported");
+            System.out.println("----------------------------------------------------------");
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * Verifies that the log file is rotated once it exceeds its size limit, keeping only the given number of rotated
+     * files.
+     */
+    public static void testRotation() throws IOException {
+        System.out.println("\nTestAuditLog::testRotation results:");
+        System.out.println("==========================================================");
+        Path directory = Files.createTempDirectory("audit");
+        try {
+            Path logFile = directory.resolve("audit.log");
+            AuditLog auditLog = new AuditLog(logFile.toString(), 1024, 4096, 3);
+            int recorded = 0;
+            for (int batch = 0; batch < 10; ++batch) {
+                for (int i = 0; i < 100; ++i, ++recorded) {
+                    auditLog.record(AuditLog.Event.OBAC, AuditLog.Outcome.DENIED, "user" + recorded, "write Account Balance", null);
+                }
+                while (auditLog.getPendingCount() > 0) {
+                    Thread.onSpinWait();
+                }
+            }
+            auditLog.close();
+            List<String> files = new ArrayList<>();
+            try (Stream<Path> paths = Files.list(directory)) {
+                paths.map(path -> path.getFileName().toString()).sorted().forEach(files::add);
+            }
+
+            System.out.println("Testing that the log is rotated, keeping 3 rotated files...");
+            System.out.println("Expected: [audit.log, audit.log.1, audit.log.2, audit.log.3]\nActual: " + files);
+            System.out.println("----------------------------------------------------------");
+
+            System.out.println("Testing that the newest decision is in the current file, and no file exceeds 4096 bytes...");
+            List<String> lines = Files.readAllLines(logFile);
+            boolean isWithinLimit = true;
+            for (String file : files) {
+                isWithinLimit &= Files.size(directory.resolve(file)) <= 4096;
+            }
+            System.out.println("Expected: true, true\nActual: " + lines.get(lines.size() - 1).contains("\"user999\"") + ", " + isWithinLimit);
+            System.out.println("----------------------------------------------------------");
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * Verifies that closing the log while decisions are being recorded loses none: each is either written before the
+     * log closes, or counted as dropped.
+     */
+    public static void testCloseWhileRecording() throws IOException, InterruptedException {
+        System.out.println("\nTestAuditLog::testCloseWhileRecording results:");
+        System.out.println("==========================================================");
+        Path directory = Files.createTempDirectory("audit");
+        try {
+            Path logFile = directory.resolve("audit.log");
+            AuditLog auditLog = new AuditLog(logFile.toString(), 1 << 16, AuditLog.DEFAULT_MAX_FILE_BYTES, 2);
+            List<Thread> producers = new ArrayList<>();
+            for (int i = 0; i < 4; ++i) {
+                int producer = i;
+                producers.add(new Thread(() -> {
+                    for (int j = 0; j < 200_000; ++j) {
+                        auditLog.record(AuditLog.Event.OBAC, AuditLog.Outcome.GRANTED, "user" + producer, null, null);
+                    }
+                }));
+            }
+            producers.forEach(Thread::start);
+            Thread.sleep(20);
+            auditLog.close();
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            long writtenDecisions = Files.readAllLines(logFile).size() - countDropReports(logFile);
+
+            System.out.println("Testing that every decision recorded is either written or dropped...");
+            System.out.println("Expected: 800000 recorded, " + auditLog.getRecordedCount() + "\nActual: "
+                    + auditLog.getRecordedCount() + " recorded, " + (writtenDecisions + auditLog.getDroppedCount()));
+            System.out.println("----------------------------------------------------------");
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    private static long countDropReports(Path logFile) throws IOException {
+        try (Stream<String> lines = Files.lines(logFile)) {
+            return lines.filter(line -> line.contains("\"outcome\":\"dropped\"")).count();
+        }
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                Files.delete(path);
+            }
+        }
+        Files.delete(directory);
+    }
+
+}
@@ -1,6 +1,30 @@
 package test.java.com.finvest;
 
+import main.java.com.finvest.BreachedPasswordFilter;
+import main.java.com.finvest.BreachedPasswordFilterBuilder;
+import main.java.com.finvest.CredentialRecord;
+import main.java.com.finvest.CoarseClock;
+import main.java.com.finvest.HashParameters;
+import main.java.com.finvest.LoginThrottle;
+import main.java.com.finvest.MappedCredentialStore;
 import main.java.com.finvest.PasswordManager;
+import main.java.com.finvest.PasswordPolicy;
+import main.java.com.finvest.RoleEnum;
+import main.java.com.finvest.TextCredentialStore;
+import main.java.com.finvest.User;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Drives the testing of the password manager.
@@ -9,8 +33,17 @@ import main.java.com.finvest.PasswordManager;
  */
 public class TestPasswordManager {
 
-    public static void main(String[] argv) {
+    public static void main(String[] argv) throws IOException {
         testProactivePasswordChecker();
+        testBreachedPasswordFilter();
+        testPasswordPolicy();
+        testRecordFieldInjection();
+        testCredentialStoreRecovery();
+        testDuplicateUsernames();
+        testCredentialStoreCompaction();
+        testLoginThrottle();
+        testUnknownUsernameLatency();
+        testBinaryStoreVerification();
         System.out.println("Error messages:");
     }
 
@@ -68,4 +101,494 @@ public class TestPasswordManager {
         System.out.println("----------------------------------------------------------");
     }
 
-}
\ No newline at end of file
+    /**
+     * Verifies the breached password filter built from plaintext and SHA-1 password lists.
+     */
+    public static void testBreachedPasswordFilter() throws IOException {
+        System.out.println("\nTestPasswordManager::testBreachedPasswordFilter results:");
+        System.out.println("==========================================================");
+        List<String> breachedPasswords = new ArrayList<>();
+        for (int i = 0; i < 100000; ++i) {
+            breachedPasswords.add("Breached" + i + "!");
+        }
+        Path passwordList = Files.createTempFile("breached", ".txt");
+        Path filterFile = Files.createTempFile("breached", ".bloom");
+        try {
+            Files.write(passwordList, breachedPasswords);
+            BreachedPasswordFilterBuilder.build(passwordList, false, filterFile, 0.01);
+            BreachedPasswordFilter filter = new BreachedPasswordFilter(filterFile);
+            System.out.println("Testing that every breached password is reported...");
+            int missed = 0;
+            for (String breachedPassword : breachedPasswords) {
+                if (!filter.mightContain(breachedPassword)) ++missed;
+            }
+            System.out.println("Expected: 100000 entries, 0 missed\nActual: " + filter.getEntryCount() + " entries, " + missed + " missed");
+            System.out.println("----------------------------------------------------------");
+
+            System.out.println("Testing the false-positive rate over 100000 other passwords, built for 1%...");
+            int falsePositives = 0;
+            for (int i = 0; i < 100000; ++i) {
+                if (filter.mightContain("Unbreached" + i + "?")) ++falsePositives;
+            }
+            System.out.println("Expected: under 1.5%\nActual: " + (falsePositives < 1500 ? "under 1.5%" : falsePositives / 1000.0 + "%"));
+            System.out.println("----------------------------------------------------------");
+
+            System.out.println("Testing a filter built from a SHA-1 list with breach counts...");
+            Files.write(passwordList, List.of("5BAA61E4C9B93F3F0682250B6CF8331B7EE68FD8:3861493")); // SHA-1 of "password"
+            BreachedPasswordFilterBuilder.build(passwordList, true, filterFile, 0.001);
+            filter = new BreachedPasswordFilter(filterFile);
+            System.out.println("Expected: true, false\nActual: " + filter.mightContain("password") + ", " + filter.mightContain("Pa$$word1"));
+            System.out.println("----------------------------------------------------------");
+        } finally {
+            Files.deleteIfExists(passwordList);
+            Files.deleteIfExists(filterFile);
+        }
+    }
+
+    /**
+     * Verifies the violations reported by the compiled password policy, and their descriptions.
+     */
+    public static void testPasswordPolicy() {
+        PasswordPolicy passwordPolicy = PasswordPolicy.DEFAULT;
+        System.out.println("\nTestPasswordManager::testPasswordPolicy results:");
+        System.out.println("==========================================================");
+        System.out.println("Testing the violations of a short password without a digit or special character...");
+        System.out.println("Expected: " + (PasswordPolicy.TOO_SHORT | PasswordPolicy.MISSING_DIGIT | PasswordPolicy.MISSING_SPECIAL)
+                + "\nActual: " + passwordPolicy.check("test", "Short"));
+        System.out.println("----------------------------------------------------------");
+
+        System.out.println("Testing the violations of a password containing the username backwards...");
+        System.out.println("Expected: " + PasswordPolicy.RESEMBLES_USERNAME + "\nActual: " + passwordPolicy.check("alice", "EcilA#2022"));
+        System.out.println("----------------------------------------------------------");
+
+        System.out.println("Testing the violations of an acceptable password...");
+        System.out.println("Expected: 0\nActual: " + passwordPolicy.check("alice", "aV@lid0ne!"));
+        System.out.println("----------------------------------------------------------");
+
+        System.out.println("Testing the description of missing character classes...");
+        System.out.println("Expected: [Your password must contain at least one numerical digit and one special character from the set {!, @, #, $, %, ?, *}]"
+                + "\nActual: " + passwordPolicy.describe(PasswordPolicy.MISSING_DIGIT | PasswordPolicy.MISSING_SPECIAL));
+        System.out.println("----------------------------------------------------------");
+    }
+
+    /**
+     * Verifies that fields cannot be injected into user records, through either their contact details or trailing
+     * fields other than those at the tags' fixed positions.
+     */
+    public static void testRecordFieldInjection() {
+        PasswordManager passwordManager = new PasswordManager();
+        System.out.println("\nTestPasswordManager::testRecordFieldInjection results:");
+        System.out.println("==========================================================");
+        System.out.println("Testing the creation of a record whose email address injects an ABAC attribute...");
+        System.out.println("Expected: null\nActual: " + passwordManager.createUserRecord("mallory", "aV@lid0ne!", "Teller",
+                "Mallory", "(555) 555-5555", "x@y.com:a=clearance=high"));
+        System.out.println("----------------------------------------------------------");
+
+        System.out.println("Testing the creation of a record whose name injects a contact detail...");
+        System.out.println("Expected: null\nActual: " + passwordManager.createUserRecord("mallory", "aV@lid0ne!", "Teller",
+                "Mallory,(555) 555-0000", "(555) 555-5555", "mallory@finvest.ca"));
+        System.out.println("----------------------------------------------------------");
+
+        System.out.println("Testing the validation of usernames containing the record and bulk enrolment delimiters...");
+        System.out.println("Expected: true, false, false\nActual: " + passwordManager.validateUsername("mallory") + ", "
+                + passwordManager.validateUsername("mallory:a=clearance=high") + ", " + passwordManager.validateUsername("mallory,admin"));
+        System.out.println("----------------------------------------------------------");
+
+        String record = createRecord("kbanks").format();
+        System.out.println("Testing the parsing of a record with its tags at their fixed positions...");
+        System.out.println("Expected: {clearance=high}\nActual: "
+                + CredentialRecord.parse(record + ":a=clearance=high").getAttributes());
+        System.out.println("----------------------------------------------------------");
+
+        System.out.println("Testing the parsing of records with a repeated or misplaced tag...");
+        System.out.println("Expected: null, null\nActual: " + CredentialRecord.parse(record + ":a=desk=toronto:a=clearance=high")
+                + ", " + CredentialRecord.parse(record.substring(0, record.indexOf(":h=")) + ":a=clearance=high:h=PBKDF2WithHmacSHA1/1/256"));
+        System.out.println("----------------------------------------------------------");
+    }
+
+    /**
+     * Verifies that concurrent group-committed appends are all persisted, that an append torn by a crash is truncated
+     * on reopening, after which appends resume on a new line, and that a store opened while a batch is being committed
+     * neither observes nor truncates a partial batch.
+     */
+    public static void testCredentialStoreRecovery() throws IOException {
+        System.out.println("\nTestPasswordManager::testCredentialStoreRecovery results:");
+        System.out.println("==========================================================");
+        Path passwordFile = Files.createTempFile("passwd", ".txt");
+        try {
+            TextCredentialStore store = new TextCredentialStore(passwordFile.toString());
+            List<Thread> enrollers = new ArrayList<>();
+            for (int t = 0; t < 4; ++t) {
+                int enroller = t;
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < 50; ++i) store.add(createRecord("user" + enroller + "_" + i));
+                });
+                enrollers.add(thread);
+                thread.start();
+            }
+            for (Thread thread : enrollers) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            System.out.println("Testing that concurrent group-committed appends are all persisted...");
+            System.out.println("Expected: 200 records\nActual: " + Files.readAllLines(passwordFile).size() + " records");
+            System.out.println("----------------------------------------------------------");
+
+            System.out.println("Testing that an append torn by a crash is truncated on reopening...");
+            store.add(createRecord("torn"));
+            byte[] bytes = Files.readAllBytes(passwordFile);
+            Files.write(passwordFile, Arrays.copyOf(bytes, bytes.length - 12));
+            TextCredentialStore reopened = new TextCredentialStore(passwordFile.toString());
+            System.out.println("Expected: false, 200 records\nActual: " + (reopened.getRecord("torn") != null) + ", "
+                    + Files.readAllLines(passwordFile).size() + " records");
+            System.out.println("----------------------------------------------------------");
+
+            System.out.println("Testing that appends resume on a new line after the truncation...");
+            reopened.add(createRecord("resumed"));
+            System.out.println("Expected: true\nActual: " + (new TextCredentialStore(passwordFile.toString()).getRecord("resumed") != null));
+            System.out.println("----------------------------------------------------------");
+
+            System.out.println("Testing that stores opened while another commits a batch see none or all of it...");
+            List<CredentialRecord> batch = new ArrayList<>();
+            for (int i = 0; i < 20000; ++i) batch.add(createRecord("batched" + i)); // Several write buffers' worth
+            boolean[] isCommitted = {false};
+            Thread committer = new Thread(() -> isCommitted[0] = reopened.addAll(batch));
+            committer.start();
+            Set<Integer> observedCounts = new TreeSet<>();
+            for (int i = 0; i < 100 && committer.isAlive(); ++i) {
+                observedCounts.add(new TextCredentialStore(passwordFile.toString()).getLiveRecordCount());
+            }
+            try {
+                committer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            observedCounts.removeAll(Set.of(201, 20201));
+            System.out.println("Expected: true, 20201 live records, none or all\nActual: " + isCommitted[0] + ", "
+                    + new TextCredentialStore(passwordFile.toString()).getLiveRecordCount() + " live records, "
+                    + (observedCounts.isEmpty() ? "none or all" : "partial batches of " + observedCounts));
+            System.out.println("----------------------------------------------------------");
+        } finally {
+            deletePasswordFile(passwordFile);
+        }
+    }
+
+    /**
+     * Verifies that at most one of several concurrent enrolments of a username succeeds, that a batch repeating a
+     * username is rejected whole, and that the first of a legacy file's duplicate records is authoritative.
+     */
+    public static void testDuplicateUsernames() throws IOException {
+        System.out.println("\nTestPasswordManager::testDuplicateUsernames results:");
+        System.out.println("==========================================================");
+        Path passwordFile = Files.createTempFile("passwd", ".txt");
+        try {
+            TextCredentialStore store = new TextCredentialStore(passwordFile.toString());
+            System.out.println("Testing concurrent enrolments of one username...");
+            AtomicInteger added = new AtomicInteger();
+            List<Thread> enrollers = new ArrayList<>();
+            for (int t = 0; t < 8; ++t) {
+                Thread thread = new Thread(() -> {
+                    if (store.add(createRecord("contested"))) added.incrementAndGet();
+                });
+                enrollers.add(thread);
+                thread.start();
+            }
+            for (Thread thread : enrollers) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            System.out.println("Expected: 1 added, 1 record\nActual: " + added.get() + " added, "
+                    + Files.readAllLines(passwordFile).size() + " record");
+            System.out.println("----------------------------------------------------------");
+
+            System.out.println("Testing a batch that repeats a username...");
+            System.out.println("Expected: false, null\nActual: " + store.addAll(List.of(createRecord("repeated"), createRecord("repeated")))
+                    + ", " + store.getRecord("repeated"));
+            System.out.println("----------------------------------------------------------");
+
+            System.out.println("Testing that the first of a legacy file's duplicate records is authoritative...");
+            CredentialRecord first = createRecord("legacy");
+            CredentialRecord second = createRecord("legacy").withSaltedHash(new byte[16], new byte[]{1}, HashParameters.LEGACY);
+            Files.write(passwordFile, List.of(first.format(), second.format()));
+            CredentialRecord loaded = new TextCredentialStore(passwordFile.toString()).getRecord("legacy");
+            System.out.println("Expected: 32-byte hash\nActual: " + loaded.getSaltedHash().length + "-byte hash");
+            System.out.println("----------------------------------------------------------");
+        } finally {
+            deletePasswordFile(passwordFile);
+        }
+    }
+
+    /**
+     * Verifies that updates and removals are replayed on reopening, and that compaction neither loses nor duplicates
+     * records appended concurrently, whether by the compacting store or by another store of the same file.
+     */
+    public static void testCredentialStoreCompaction() throws IOException {
+        System.out.println("\nTestPasswordManager::testCredentialStoreCompaction results:");
+        System.out.println("==========================================================");
+        Path passwordFile = Files.createTempFile("passwd", ".txt");
+        try {
+            TextCredentialStore store = new TextCredentialStore(passwordFile.toString());
+            store.addAll(List.of(createRecord("kept"), createRecord("updated"), createRecord("removed")));
+            CredentialRecord updated = store.getRecord("updated");
+            store.replace(updated, updated.withRole(RoleEnum.COMPLIANCE_OFFICER));
+            store.remove(store.getRecord("removed"));
+            System.out.println("Testing that updates and removals are replayed on reopening...");
+            TextCredentialStore reopened = new TextCredentialStore(passwordFile.toString());
+            System.out.println("Expected: 5 entries, 2 live records, " + RoleEnum.COMPLIANCE_OFFICER + ", null\nActual: "
+                    + reopened.getEntryCount() + " entries, " + reopened.getLiveRecordCount() + " live records, "
+                    + reopened.getRecord("updated").getRole() + ", " + reopened.getRecord("removed"));
+            System.out.println("----------------------------------------------------------");
+
+            System.out.println("Testing compaction concurrently with enrolments...");
+            Thread enroller = new Thread(() -> {
+                for (int i = 0; i < 500; ++i) reopened.add(createRecord("enrolled" + i));
+            });
+            enroller.start();
+            boolean compacted = reopened.compact();
+            try {
+                enroller.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            TextCredentialStore compactedStore = new TextCredentialStore(passwordFile.toString());
+            System.out.println("Expected: true, 502 live records, 502 entries\nActual: " + compacted + ", "
+                    + compactedStore.getLiveRecordCount() + " live records, " + Files.readAllLines(passwordFile).size() + " entries");
+            System.out.println("----------------------------------------------------------");
+
+            System.out.println("Testing compaction by one store while another store of the same file appends...");
+            TextCredentialStore otherStore = new TextCredentialStore(passwordFile.toString());
+            for (int i = 0; i < 100; ++i) {
+                CredentialRecord kept = compactedStore.getRecord("kept");
+                compactedStore.replace(kept, kept.withRole(i % 2 == 0 ? RoleEnum.COMPLIANCE_OFFICER : RoleEnum.TELLER));
+            }
+            Thread appender = new Thread(() -> {
+                for (int i = 0; i < 500; ++i) otherStore.add(createRecord("appended" + i));
+            });
+            appender.start();
+            boolean isCompactedWhileAppending = compactedStore.compact();
+            try {
+                appender.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            otherStore.add(createRecord("appendedAfterCompaction"));
+            TextCredentialStore rereadStore = new TextCredentialStore(passwordFile.toString());
+            int appended = 0;
+            for (int i = 0; i < 500; ++i) {
+                if (rereadStore.getRecord("appended" + i) != null) ++appended;
+            }
+            System.out.println("Expected: true, 500 appended records, true\nActual: " + isCompactedWhileAppending + ", "
+                    + appended + " appended records, " + (rereadStore.getRecord("appendedAfterCompaction") != null));
+            System.out.println("----------------------------------------------------------");
+        } finally {
+            deletePasswordFile(passwordFile);
+        }
+    }
+
+    /**
+     * Verifies that the login throttle locks out usernames and rate limits sources after repeated failures, that
+     * failures decay over time, that a successful login forgives the username's earlier failures, and that throttled
+     * logins are rejected before any hash is derived.
+     */
+    public static void testLoginThrottle() throws IOException {
+        System.out.println("\nTestPasswordManager::testLoginThrottle results:");
+        System.out.println("==========================================================");
+        AdjustableClock clock = new AdjustableClock(Instant.parse("2022-03-01T09:00:00Z"));
+        CoarseClock coarseClock = new CoarseClock(clock);
+        LoginThrottle loginThrottle = new LoginThrottle(coarseClock, 5, 50, 15);
+        InetAddress attacker = InetAddress.getByName("203.0.113.7");
+        InetAddress office = InetAddress.getByName("10.1.2.3");
+
+        System.out.println("Testing that a username is locked out after 5 failures, from any source...");
+        StringBuilder actual = new StringBuilder();
+        for (int i = 0; i < 5; ++i) {
+            actual.append(loginThrottle.isAllowed("victim", attacker)).append(" ");
+            loginThrottle.recordFailure("victim", attacker);
+        }
+        actual.append(loginThrottle.isAllowed("victim", attacker)).append(" ").append(loginThrottle.isAllowed("victim", office));
+        System.out.println("Expected: true true true true true false false\nActual: " + actual);
+        System.out.println("----------------------------------------------------------");
+
+        System.out.println("Testing that a source is rate limited after 50 failures across usernames...");
+        for (int i = 0; i < 45; ++i) {
+            loginThrottle.recordFailure("stuffed" + i, attacker);
+        }
+        System.out.println("Expected: false, true\nActual: " + loginThrottle.isAllowed("bystander", attacker) + ", "
+                + loginThrottle.isAllowed("bystander", office));
+        System.out.println("----------------------------------------------------------");
+
+        System.out.println("Testing that failures decay after between one and two 15-minute windows...");
+        clock.advance(Duration.ofMinutes(15));
+        coarseClock.tick();
+        boolean isAllowedAfterOneWindow = loginThrottle.isAllowed("victim", office);
+        clock.advance(Duration.ofMinutes(15));
+        coarseClock.tick();
+        System.out.println("Expected: false, true\nActual: " + isAllowedAfterOneWindow + ", " + loginThrottle.isAllowed("victim", attacker));
+        System.out.println("----------------------------------------------------------");
+
+        System.out.println("Testing that a success forgives earlier failures, including those of the previous window...");
+        actual.setLength(0);
+        for (int i = 0; i < 4; ++i) loginThrottle.recordFailure("typist", office);
+        loginThrottle.recordSuccess("typist");
+        clock.advance(Duration.ofMinutes(15));
+        coarseClock.tick();
+        for (int i = 0; i < 4; ++i) loginThrottle.recordFailure("typist", office);
+        actual.append(loginThrottle.isAllowed("typist", office)).append(" ");
+        loginThrottle.recordFailure("typist", office);
+        actual.append(loginThrottle.isAllowed("typist", office));
+        System.out.println("Expected: true false\nActual: " + actual);
+        System.out.println("----------------------------------------------------------");
+
+        Path passwordFile = Files.createTempFile("passwd", ".txt");
+        try {
+            PasswordManager passwordManager = new PasswordManager(new TextCredentialStore(passwordFile.toString()));
+            passwordManager.addUserRecords(List.of(passwordManager.createUserRecord("kbanks", "Kb4nks!pw", "Teller",
+                    "Kiran Banks", "(555) 555-5555", "kbanks@finvest.ca")));
+
+            System.out.println("Testing failures, then a successful login, then failures, short of and up to the limit...");
+            actual.setLength(0);
+            for (int i = 0; i < 4; ++i) passwordManager.getValidatedUser("kbanks", "Guess" + i + "!", office);
+            actual.append(passwordManager.getValidatedUser("kbanks", "Kb4nks!pw", office) != null).append(" ");
+            for (int i = 0; i < 4; ++i) passwordManager.getValidatedUser("kbanks", "Guess" + i + "!", office);
+            actual.append(passwordManager.getValidatedUser("kbanks", "Kb4nks!pw", office) != null).append(" ");
+            for (int i = 0; i < 5; ++i) passwordManager.getValidatedUser("kbanks", "Guess" + i + "!", office);
+            actual.append(passwordManager.getValidatedUser("kbanks", "Kb4nks!pw", office) != null);
+            System.out.println("Expected: true true false\nActual: " + actual);
+            System.out.println("----------------------------------------------------------");
+
+            System.out.println("Testing that a locked-out login is rejected before hashing, even with the correct password...");
+            passwordManager.getLoginThrottle().recordSuccess("kbanks"); // Start again from no failures
+            for (int i = 0; i < LoginThrottle.DEFAULT_MAX_USERNAME_FAILURES; ++i) {
+                passwordManager.getValidatedUser("kbanks", "Guess" + i + "!", attacker);
+            }
+            long startedAt = System.nanoTime();
+            boolean isValidated = passwordManager.getValidatedUser("kbanks", "Kb4nks!pw", attacker) != null;
+            long elapsedMillis = (System.nanoTime() - startedAt) / 1_000_000;
+            System.out.println("Expected: false, under 10 ms\nActual: " + isValidated + ", " + (elapsedMillis < 10 ? "under 10 ms" : elapsedMillis + " ms"));
+        } finally {
+            deletePasswordFile(passwordFile);
+        }
+        System.out.println("----------------------------------------------------------");
+    }
+
+    /**
+     * Verifies that an unknown username is rejected after a decoy verification that takes about as long as rejecting a
+     * wrong password, including one against a record with outdated hash parameters, taking the fastest of several
+     * attempts of each to discount warm-up and interference.
+     */
+    public static void testUnknownUsernameLatency() throws IOException {
+        System.out.println("\nTestPasswordManager::testUnknownUsernameLatency results:");
+        System.out.println("==========================================================");
+        Path passwordFile = Files.createTempFile("passwd", ".txt");
+        try {
+            PasswordManager passwordManager = new PasswordManager(new TextCredentialStore(passwordFile.toString()));
+            passwordManager.addUserRecords(List.of(passwordManager.createUserRecord("kbanks", "Kb4nks!pw", "Teller",
+                    "Kiran Banks", "(555) 555-5555", "kbanks@finvest.ca")));
+            long wrongPasswordNanos = Long.MAX_VALUE;
+            long unknownUsernameNanos = Long.MAX_VALUE;
+            boolean isAnyValidated = false;
+            for (int i = 0; i < 10; ++i) {
+                long startedAt = System.nanoTime();
+                isAnyValidated |= passwordManager.getValidatedUser("kbanks", "Guess" + i + "!") != null;
+                wrongPasswordNanos = Math.min(wrongPasswordNanos, System.nanoTime() - startedAt);
+                startedAt = System.nanoTime();
+                isAnyValidated |= passwordManager.getValidatedUser("kbankz", "Guess" + i + "!") != null;
+                unknownUsernameNanos = Math.min(unknownUsernameNanos, System.nanoTime() - startedAt);
+            }
+            double ratio = (double) Math.max(wrongPasswordNanos, unknownUsernameNanos) / Math.min(wrongPasswordNanos, unknownUsernameNanos);
+            System.out.println("Testing the rejection of a wrong password (" + wrongPasswordNanos / 1_000_000
+                    + " ms) and of an unknown username (" + unknownUsernameNanos / 1_000_000 + " ms)...");
+            System.out.println("Expected: false, 10 decoys, within 50% of one another\nActual: " + isAnyValidated + ", "
+                    + passwordManager.getDecoyVerificationCount() + " decoys, "
+                    + (ratio <= 1.5 ? "within 50% of one another" : "differing by " + Math.round((ratio - 1) * 100) + "%"));
+            System.out.println("----------------------------------------------------------");
+        } finally {
+            deletePasswordFile(passwordFile);
+        }
+
+        // A record not yet upgraded from costlier outdated parameters, with which the decoy should then be derived
+        passwordFile = Files.createTempFile("passwd", ".txt");
+        try {
+            PasswordManager passwordManager = new PasswordManager(new TextCredentialStore(passwordFile.toString()));
+            HashParameters outdated = new HashParameters("PBKDF2WithHmacSHA1", 4 * passwordManager.getHashParameters().getIterations(), 256);
+            passwordManager.addUserRecords(List.of(new CredentialRecord("outdated", new byte[16], new byte[32], outdated,
+                    RoleEnum.TELLER, "Test User", "4165550100", "outdated@finvest.ca")));
+            long wrongPasswordNanos = Long.MAX_VALUE;
+            long unknownUsernameNanos = Long.MAX_VALUE;
+            for (int i = 0; i < 10; ++i) {
+                long startedAt = System.nanoTime();
+                passwordManager.getValidatedUser("outdated", "Guess" + i + "!");
+                wrongPasswordNanos = Math.min(wrongPasswordNanos, System.nanoTime() - startedAt);
+                startedAt = System.nanoTime();
+                passwordManager.getValidatedUser("outdatez", "Guess" + i + "!");
+                unknownUsernameNanos = Math.min(unknownUsernameNanos, System.nanoTime() - startedAt);
+            }
+            double ratio = (double) Math.max(wrongPasswordNanos, unknownUsernameNanos) / Math.min(wrongPasswordNanos, unknownUsernameNanos);
+            System.out.println("Testing the rejection of a wrong password against an outdated record (" + wrongPasswordNanos / 1_000_000
+                    + " ms) and of an unknown username (" + unknownUsernameNanos / 1_000_000 + " ms)...");
+            System.out.println("Expected: within 50% of one another\nActual: "
+                    + (ratio <= 1.5 ? "within 50% of one another" : "differing by " + Math.round((ratio - 1) * 100) + "%"));
+        } finally {
+            deletePasswordFile(passwordFile);
+        }
+        System.out.println("----------------------------------------------------------");
+    }
+
+    /**
+     * Verifies that logins against a binary password store verify credentials against the mapped salt and hash slots,
+     * decoding the record of a successful login only, and that a corrupt record is treated as absent.
+     */
+    public static void testBinaryStoreVerification() throws IOException {
+        System.out.println("\nTestPasswordManager::testBinaryStoreVerification results:");
+        System.out.println("==========================================================");
+        Path binaryFile = Files.createTempFile("passwd", ".bin");
+        try {
+            PasswordManager enrolment = new PasswordManager();
+            MappedCredentialStore.write(List.of(enrolment.createUserRecord("kbanks", "Kb4nks!pw", "Teller",
+                    "Kiran Banks", "(555) 555-5555", "kbanks@finvest.ca")), binaryFile);
+            PasswordManager passwordManager = new PasswordManager(new MappedCredentialStore(binaryFile));
+
+            System.out.println("Testing the correct password...");
+            User user = passwordManager.getValidatedUser("kbanks", "Kb4nks!pw");
+            System.out.println("Expected: kbanks, Kiran Banks\nActual: " + (user == null ? null : user.getUsername() + ", " + user.getName()));
+            System.out.println("----------------------------------------------------------");
+
+            System.out.println("Testing a wrong password and an unknown username...");
+            System.out.println("Expected: null, null, 1 decoy\nActual: " + passwordManager.getValidatedUser("kbanks", "Kb4nks!pq")
+                    + ", " + passwordManager.getValidatedUser("kbankz", "Kb4nks!pw") + ", "
+                    + passwordManager.getDecoyVerificationCount() + " decoy");
+            System.out.println("----------------------------------------------------------");
+
+            System.out.println("Testing that a record with an out-of-range role ordinal is treated as absent...");
+            byte[] bytes = Files.readAllBytes(binaryFile);
+            bytes[40 + 2 * Integer.BYTES + 10] = (byte) 0xFF; // The role of the first record, after the header and 2 table slots
+            Files.write(binaryFile, bytes);
+            MappedCredentialStore corruptStore = new MappedCredentialStore(binaryFile);
+            System.out.println("Expected: null, null\nActual: " + corruptStore.getRecord("kbanks") + ", "
+                    + new PasswordManager(corruptStore).getValidatedUser("kbanks", "Kb4nks!pw"));
+        } finally {
+            Files.deleteIfExists(binaryFile);
+        }
+        System.out.println("----------------------------------------------------------");
+    }
+
+    /**
+     * Deletes the given password file along with its sidecar lock file.
+     */
+    private static void deletePasswordFile(Path passwordFile) throws IOException {
+        Files.deleteIfExists(passwordFile);
+        Files.deleteIfExists(Path.of(passwordFile + ".lock"));
+    }
+
+    private static CredentialRecord createRecord(String username) {
+        return new CredentialRecord(username, new byte[16], new byte[32], HashParameters.LEGACY, RoleEnum.TELLER,
+                "Test User", "4165550100", username + "@finvest.ca");
+    }
+
+}
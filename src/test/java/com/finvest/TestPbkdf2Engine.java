@@ -0,0 +1,150 @@
+package test.java.com.finvest;
+
+import main.java.com.finvest.Pbkdf2Engine;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Drives the testing of the PBKDF2 engine.
+ *
+ * @author Paul Roode
+ */
+public class TestPbkdf2Engine {
+
+    public static void main(String[] argv) throws GeneralSecurityException {
+        testEquivalenceToKeyFactory();
+        testStoredHash();
+        testVerify();
+        testConstantTimeComparison();
+    }
+
+    /**
+     * Verifies that the engine derives the same keys as the JCE's PBKDF2 SecretKeyFactory.
+     */
+    public static void testEquivalenceToKeyFactory() throws GeneralSecurityException {
+        System.out.println("\nTestPbkdf2Engine::testEquivalenceToKeyFactory results:");
+        System.out.println("==========================================================");
+        String[] passwords = {
+                "aV@lid0ne!",
+                "",
+                "p\u00E4ss\u20ACw\u00F6rd",
+                "\uD83D\uDD11key\uD800",
+                "aVeryLongPasswordThatExceedsTheSixtyFourByteHmacBlockSizeOfSha1AndSha256!"
+        };
+        String[] macAlgorithms = {"HmacSHA1", "HmacSHA256"};
+        byte[] salt = Base64.getDecoder().decode("oJVhesxXUpz8iCxlkmKQoA==");
+        for (String macAlgorithm : macAlgorithms) {
+            for (int keyLength : new int[]{16, 32, 48}) {
+                for (String password : passwords) {
+                    byte[] expected = SecretKeyFactory.getInstance("PBKDF2With" + macAlgorithm)
+                            .generateSecret(new PBEKeySpec(password.toCharArray(), salt, 1000, keyLength * 8))
+                            .getEncoded();
+                    byte[] actual = new byte[keyLength];
+                    Pbkdf2Engine.forCurrentThread(macAlgorithm).derive(password.toCharArray(), salt, 1000, actual, keyLength);
+                    System.out.println("Testing " + macAlgorithm + " with a " + keyLength + "-byte key and a "
+                            + password.length() + "-character password...");
+                    System.out.println("Expected: true\nActual: " + Arrays.equals(expected, actual));
+                    System.out.println("----------------------------------------------------------");
+                }
+            }
+        }
+    }
+
+    /**
+     * Verifies that the engine reproduces a salted hash stored in passwd.txt with the production parameters.
+     */
+    public static void testStoredHash() throws GeneralSecurityException {
+        System.out.println("\nTestPbkdf2Engine::testStoredHash results:");
+        System.out.println("==========================================================");
+        byte[] salt = Base64.getDecoder().decode("oJVhesxXUpz8iCxlkmKQoA==");
+        String password = "aV@lid0ne!";
+        byte[] expected = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1")
+                .generateSecret(new PBEKeySpec(password.toCharArray(), salt, 65536, 256))
+                .getEncoded();
+        byte[] actual = new byte[32];
+        Pbkdf2Engine.forCurrentThread("HmacSHA1").derive(password.toCharArray(), salt, 65536, actual, actual.length);
+        System.out.println("Testing a derivation with 65536 iterations and a 256-bit key...");
+        System.out.println("Expected: " + Base64.getEncoder().encodeToString(expected)
+                + "\nActual:   " + Base64.getEncoder().encodeToString(actual));
+        System.out.println("----------------------------------------------------------");
+    }
+
+    /**
+     * Verifies that the engine verifies exactly those passwords that derive the expected key.
+     */
+    public static void testVerify() throws GeneralSecurityException {
+        System.out.println("\nTestPbkdf2Engine::testVerify results:");
+        System.out.println("==========================================================");
+        byte[] salt = Base64.getDecoder().decode("oJVhesxXUpz8iCxlkmKQoA==");
+        Pbkdf2Engine engine = Pbkdf2Engine.forCurrentThread("HmacSHA256");
+        for (int keyLength : new int[]{16, 32, 96}) { // 96 bytes outgrows the engine's initial buffer
+            byte[] expected = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256")
+                    .generateSecret(new PBEKeySpec("aV@lid0ne!".toCharArray(), salt, 1000, keyLength * 8))
+                    .getEncoded();
+            System.out.println("Testing the correct password against a " + keyLength + "-byte key...");
+            System.out.println("Expected: true\nActual: " + engine.verify("aV@lid0ne!", salt, 1000, expected));
+            System.out.println("----------------------------------------------------------");
+            System.out.println("Testing an incorrect password against a " + keyLength + "-byte key...");
+            System.out.println("Expected: false\nActual: " + engine.verify("aV@lid0ne?", salt, 1000, expected));
+            System.out.println("----------------------------------------------------------");
+        }
+
+        // Lay the salt and key out within a direct buffer, as a memory-mapped store does
+        byte[] expected = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256")
+                .generateSecret(new PBEKeySpec("aV@lid0ne!".toCharArray(), salt, 1000, 256))
+                .getEncoded();
+        ByteBuffer record = ByteBuffer.allocateDirect(8 + salt.length + expected.length);
+        record.put(8, salt).put(8 + salt.length, expected);
+        ByteBuffer saltSlice = record.slice(8, salt.length);
+        ByteBuffer keySlice = record.slice(8 + salt.length, expected.length);
+        System.out.println("Testing the correct and an incorrect password against a salt and key read in place...");
+        System.out.println("Expected: true, false, 0, 0\nActual: " + engine.verify("aV@lid0ne!", saltSlice, 1000, keySlice)
+                + ", " + engine.verify("aV@lid0ne?", saltSlice, 1000, keySlice) + ", " + saltSlice.position() + ", "
+                + keySlice.position());
+        System.out.println("----------------------------------------------------------");
+    }
+
+    /**
+     * A timing harness that verifies that comparing a derived key to an expected key takes about as long whether they
+     * first differ at their first byte or at their last, i.e., that the comparison does not return early. Each case
+     * is timed over many comparisons, taking the fastest of several rounds to discount warm-up and interference.
+     */
+    public static void testConstantTimeComparison() {
+        System.out.println("\nTestPbkdf2Engine::testConstantTimeComparison results:");
+        System.out.println("==========================================================");
+        byte[] expectedKey = Base64.getDecoder().decode("oJVhesxXUpz8iCxlkmKQoKCVYXrMV1Kc/IgsZZJikKA=");
+        byte[] firstByteDiffers = expectedKey.clone();
+        firstByteDiffers[0] ^= 1;
+        byte[] lastByteDiffers = expectedKey.clone();
+        lastByteDiffers[lastByteDiffers.length - 1] ^= 1;
+        long firstByteNanos = Long.MAX_VALUE;
+        long lastByteNanos = Long.MAX_VALUE;
+        for (int round = 0; round < 50; ++round) {
+            firstByteNanos = Math.min(firstByteNanos, timeComparisons(firstByteDiffers, expectedKey));
+            lastByteNanos = Math.min(lastByteNanos, timeComparisons(lastByteDiffers, expectedKey));
+        }
+        double ratio = (double) Math.max(firstByteNanos, lastByteNanos) / Math.max(Math.min(firstByteNanos, lastByteNanos), 1);
+        System.out.println("Testing the comparison of keys differing at their first byte ("
+                + firstByteNanos / 1000 + " us) and at their last byte (" + lastByteNanos / 1000 + " us)...");
+        System.out.println("Expected: within 50% of one another\nActual: "
+                + (ratio <= 1.5 ? "within 50% of one another" : "differing by " + Math.round((ratio - 1) * 100) + "%"));
+        System.out.println("----------------------------------------------------------");
+    }
+
+    private static long timeComparisons(byte[] derivedKey, byte[] expectedKey) {
+        boolean isAnyEqual = false;
+        long start = System.nanoTime();
+        for (int i = 0; i < 100_000; ++i) {
+            isAnyEqual |= Pbkdf2Engine.isEqual(derivedKey, expectedKey);
+        }
+        long elapsed = System.nanoTime() - start;
+        if (isAnyEqual) throw new AssertionError("Keys differing by a byte compared equal");
+        return elapsed;
+    }
+
+}